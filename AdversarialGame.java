@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An adversarial (Absurdle style) game, where there's no answer picked ahead of time.
+ * After each guess, the answers are split up by the hint they'd give like in
+ * AnswerPool.getChildren, and the game keeps the largest group. Ties go to the lowest
+ * pattern code, so the all green pattern (the highest code) is only given out when
+ * there's one answer left and it was guessed.
+ */
+public class AdversarialGame {
+    private AnswerPool answerPool;
+    private final List<Guess> guesses = new ArrayList<>();
+    private boolean won;
+
+    public AdversarialGame(AnswerPool answerPool) {
+        this.answerPool = answerPool;
+    }
+
+    /**
+     * Plays a guess, keeping the largest group of answers
+     * @return the pattern the guess gets
+     */
+    public int play(Guess guess) {
+        if(won) throw new IllegalStateException("The game is already won");
+        int[] patterns = answerPool.getPatterns(guess);
+        int pattern = worstPattern(patterns);
+        answerPool = narrow(answerPool, patterns, pattern);
+        guesses.add(guess);
+        won = pattern == Feedback.ALL_GREEN;
+        return pattern;
+    }
+
+    public AnswerPool getAnswerPool() {
+        return answerPool;
+    }
+
+    public List<Guess> getGuesses() {
+        return guesses;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * Returns the pattern of the largest group, with ties going to the lowest pattern code
+     * @param patterns the pattern each answer gets
+     */
+    public static int worstPattern(int[] patterns) {
+        int[] counts = new int[Feedback.NUM_PATTERNS];
+        for(int pattern : patterns) counts[pattern]++;
+        int worst = 0;
+        for(int pattern = 1; pattern < Feedback.NUM_PATTERNS; pattern++) {
+            if(counts[pattern] > counts[worst]) worst = pattern;
+        }
+        return worst;
+    }
+
+    /**
+     * Returns the answers the game would keep after the guess
+     */
+    public static AnswerPool worstChild(AnswerPool answerPool, Guess guess) {
+        int[] patterns = answerPool.getPatterns(guess);
+        return narrow(answerPool, patterns, worstPattern(patterns));
+    }
+
+    private static AnswerPool narrow(AnswerPool answerPool, int[] patterns, int pattern) {
+        List<Answer> kept = new ArrayList<>();
+        for(int j = 0; j < patterns.length; j++) {
+            if(patterns[j] == pattern) kept.add(answerPool.getAnswers().get(j));
+        }
+        return new AnswerPool(kept);
+    }
+}
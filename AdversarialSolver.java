@@ -0,0 +1,112 @@
+import java.util.*;
+
+/**
+ * Searches for the fewest guesses that are sure to win an AdversarialGame.
+ *
+ * Since the game always keeps the largest group, a line of guesses always plays out
+ * the same way, so the search is for a single sequence of guesses. It deepens one guess
+ * at a time (iterative deepening), so the first sequence it finds is the shortest.
+ *
+ * With t guesses left, a pool can only be won if some guess leaves at most maxWinnable(t - 1)
+ * answers, so each guess's largest group is counted with AnswerPool.getLargestBucket,
+ * which gives up as soon as a group passes that cutoff. Pools already shown to be
+ * unwinnable in some number of guesses are remembered by fingerprint, since many
+ * different guesses leave the same pool.
+ */
+public class AdversarialSolver {
+    private final Guess[] guesses;
+    private final int numCandidates;
+    // fingerprint -> the most guesses the pool is known to not be winnable in
+    private final Map<Long, Integer> unwinnable = new HashMap<>();
+    private long nodesVisited;
+
+    /**
+     * @param guesses every allowed guess
+     * @param numCandidates the most guesses to try at each step, taking the ones that leave
+     * the fewest answers first, or 0 to try every guess
+     */
+    public AdversarialSolver(Guess[] guesses, int numCandidates) {
+        this.guesses = guesses;
+        this.numCandidates = numCandidates <= 0 ? Integer.MAX_VALUE : numCandidates;
+    }
+
+    /**
+     * Returns the most answers a pool can have and still be winnable in the given number of
+     * guesses. A guess splits a pool into at most 242 groups besides itself, so the largest
+     * one has at least (size - 1) / 242 answers.
+     */
+    static int maxWinnable(int numGuesses) {
+        long max = numGuesses >= 1 ? 1 : 0;
+        for(int t = 2; t <= numGuesses && max < Integer.MAX_VALUE; t++) {
+            max = (Feedback.NUM_PATTERNS - 1) * max + 1;
+        }
+        return (int) Math.min(max, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the shortest sure win
+     * @param answerPool the starting answers
+     * @param maxGuesses the most guesses to look for a win in
+     * @return the guesses, ending with the one that wins, or null if there's no win in maxGuesses
+     */
+    public List<Guess> findShortestWin(AnswerPool answerPool, int maxGuesses) {
+        return SolverMetrics.timed("adversarial search", () -> {
+            for(int t = 1; t <= maxGuesses; t++) {
+                LinkedList<Guess> line = new LinkedList<>();
+                if(canWin(answerPool, t, line)) return line;
+            }
+            return null;
+        });
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    // fills in line with a winning sequence of at most t guesses if there is one
+    private boolean canWin(AnswerPool answerPool, int t, LinkedList<Guess> line) {
+        nodesVisited++;
+        if(answerPool.size() == 1) {
+            if(t < 1) return false;
+            line.addFirst(new Guess(answerPool.getAnswers().get(0).getWord()));
+            return true;
+        }
+        if(t < 2 || answerPool.size() > maxWinnable(t)) return false;
+        Integer knownUnwinnable = unwinnable.get(answerPool.getFingerprint());
+        if(knownUnwinnable != null && knownUnwinnable >= t) {
+            SolverMetrics.increment(SolverMetrics.Counter.CACHE_HITS);
+            return false;
+        }
+        SolverMetrics.increment(SolverMetrics.Counter.CACHE_MISSES);
+
+        int cutoff = maxWinnable(t - 1);
+        for(Guess guess : getCandidates(answerPool, cutoff)) {
+            AnswerPool child = AdversarialGame.worstChild(answerPool, guess);
+            if(canWin(child, t - 1, line)) {
+                line.addFirst(guess);
+                return true;
+            }
+        }
+        unwinnable.merge(answerPool.getFingerprint(), t, Math::max);
+        return false;
+    }
+
+    /**
+     * Returns the guesses whose largest group is at most the cutoff, the ones that leave
+     * the fewest answers first
+     */
+    private List<Guess> getCandidates(AnswerPool answerPool, int cutoff) {
+        Guess[] useful = answerPool.filterUsefulGuesses(guesses).toArray();
+        int[] largest = new int[useful.length];
+        List<Integer> kept = new ArrayList<>();
+        for(int i = 0; i < useful.length; i++) {
+            largest[i] = answerPool.getLargestBucket(cutoff, useful[i]);
+            if(largest[i] <= cutoff) kept.add(i);
+        }
+        kept.sort(Comparator.comparingInt(i -> largest[i]));
+
+        List<Guess> ret = new ArrayList<>();
+        for(int i = 0; i < kept.size() && i < numCandidates; i++) ret.add(useful[kept.get(i)]);
+        return ret;
+    }
+}
@@ -1,21 +1,84 @@
 import java.util.*;
 
 public class AnswerPool {
+    // the biggest slab materializeSlab will make, past which patterns are computed when needed
+    public static final long MAX_SLAB_BYTES = 256L << 20;
+
     // list of answers in the answer pool
     private List<Answer> answers;
     // priority queue of next best guesses
     private PriorityQueue<Guess> guessQueue;
-    // char frequencies across all answers
-    private int[] charFreqs;
+    // letter frequency tables across all answers
+    private PoolStats stats;
+    // bitmask of the letters that are at the exact same indeces in every answer (including
+    // letters that aren't in any answer), so a guess made only of these letters gets the
+    // same hint for every answer
+    private int fixedLetters;
+    // hash of the set of answers, computed the first time it's needed (zero until then)
+    private long fingerprint;
+    // patterns of the useful guesses against this pool's answers, if materialized
+    private FeedbackSlab slab;
+    // an ancestor's slab and this pool's indeces in it, for gathering slab the first time it's
+    // needed (most children never are, since they're pruned or already solved)
+    private FeedbackSlab parentSlab;
+    private int[] parentMembers;
     
     public AnswerPool(List<Answer> answers) {
-        this.answers = new LinkedList<>(answers);
-        charFreqs = new int[26];
-        for(Answer answer : answers) {
-            for(Map.Entry<Character, Integer> e : answer.getCharFreqs().entrySet()) {
-                charFreqs[e.getKey() - 'a'] += e.getValue();
+        this(new ArrayList<>(answers), PoolStats.of(answers));
+    }
+
+    private AnswerPool(List<Answer> answers, PoolStats stats) {
+        SolverMetrics.increment(SolverMetrics.Counter.POOLS_CREATED);
+        this.answers = answers;
+        this.stats = stats;
+        this.fixedLetters = stats.fixedLetters();
+    }
+
+    /**
+     * Returns a 64 bit hash of the set of answers in this pool that doesn't depend on
+     * their order or on how the pool was reached, so it can identify the pool across runs
+     */
+    public long getFingerprint() {
+        if(fingerprint == 0) {
+            int[] packed = new int[answers.size()];
+            for(int j = 0; j < packed.length; j++) packed[j] = answers.get(j).getPacked();
+            Arrays.sort(packed);
+            long hash = 0x9E3779B97F4A7C15L ^ packed.length;
+            for(int word : packed) {
+                hash = (hash ^ word) * 0xBF58476D1CE4E5B9L;
+                hash ^= hash >>> 31;
             }
+            fingerprint = hash == 0 ? 1 : hash;
         }
+        return fingerprint;
+    }
+
+    /**
+     * Computes the patterns of the useful guesses against this pool into one contiguous slab
+     * (see FeedbackSlab), which getPatterns and getGuessClasses then read from, and which the
+     * pool's children gather their own slabs from. Meant for small pools deep in a search.
+     * @param guesses the guesses, of which the useful ones are kept
+     * @return the slab, or null if it would be bigger than MAX_SLAB_BYTES
+     */
+    public FeedbackSlab materializeSlab(Guess[] guesses) {
+        if(getSlab() == null) {
+            Guess[] useful = filterUsefulGuesses(guesses).toArray();
+            if((long) useful.length * answers.size() > MAX_SLAB_BYTES) return null;
+            slab = FeedbackSlab.of(useful, answers);
+        }
+        return slab;
+    }
+
+    /**
+     * Returns this pool's slab, gathering it from the parent's if needed, or null if it doesn't have one
+     */
+    public FeedbackSlab getSlab() {
+        if(slab == null && parentSlab != null) {
+            slab = parentSlab.gather(parentMembers);
+            parentSlab = null;
+            parentMembers = null;
+        }
+        return slab;
     }
 
     public List<Answer> getAnswers() {
@@ -33,11 +96,7 @@ public class AnswerPool {
      * @return the number of hints the guess would yield
      */
     public int getGuessDivisiveness(Guess guess) {
-        Set<DetailedHint> hints = new HashSet<>();
-        for(Answer answer : answers) {
-            hints.add(new DetailedHint(guess, answer));
-        }
-        return hints.size();
+        return refine(Partition.whole(answers.size()), guess).numGroups();
     }
 
     /**
@@ -50,8 +109,12 @@ public class AnswerPool {
      */
     public int getGuessCharFreqs(Guess guess) {
         int score = 0;
-        for(Map.Entry<Character, Integer> e : guess.getCharFreqs().entrySet()) {
-            score += charFreqs[e.getKey() - 'a'] * e.getValue();
+        int seen = 0;
+        for(int i = 0; i < 5; i++) {
+            int c = guess.charAt(i) - 'a';
+            if((seen & (1 << c)) != 0) continue;
+            seen |= 1 << c;
+            score += stats.letterCount(c) * guess.letterCount(c);
         }
         return score;
     }
@@ -60,66 +123,216 @@ public class AnswerPool {
     // so words like areae dont win
     public int getGuessCharSetFreqs(Guess guess) {
         int score = 0;
-        for(Character c : guess.getCharFreqs().keySet()) {
-            score += charFreqs[c - 'a'];
+        int seen = 0;
+        for(int i = 0; i < 5; i++) {
+            int c = guess.charAt(i) - 'a';
+            if((seen & (1 << c)) != 0) continue;
+            seen |= 1 << c;
+            score += stats.letterCount(c);
         }
         return score;
     }
 
+    /**
+     * Cheaply checks whether a guess could split this pool, i.e. whether it has a letter
+     * that isn't at the same indeces in every answer. A guess can still be useless if this
+     * returns true, but never useful if it returns false
+     * @param guess the guess
+     * @return false if the guess is sure to give the same hint for every answer
+     */
     public boolean guessIsUseful(Guess guess) {
-        return getGuessCharFreqs(guess) == 0;
+        if(answers.size() < 2) return false;
+        for(int i = 0; i < 5; i++) {
+            if((fixedLetters & (1 << (guess.charAt(i) - 'a'))) == 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Skips the guesses that can't split this pool (see guessIsUseful) so that they
+     * don't have to be scored
+     * @param guesses the guesses
+     * @return the useful guesses and the number skipped
+     */
+    public UsefulGuesses filterUsefulGuesses(Guess[] guesses) {
+        List<Guess> useful = new ArrayList<>();
+        for(Guess guess : guesses) {
+            if(guessIsUseful(guess)) useful.add(guess);
+        }
+        return new UsefulGuesses(useful, guesses.length - useful.size());
+    }
+
+    /**
+     * Returns the bitmask of the letters in any of the answers
+     */
+    public int getLetterUnion() {
+        return stats.letterUnion();
+    }
+
+    /**
+     * Returns the bitmask of the letters at the given index in any of the answers
+     */
+    public int getPositionLetters(int index) {
+        return stats.positionLetters(index);
+    }
+
+    public PoolStats getStats() {
+        return stats;
     }
 
     // assigns a guess 2 points for each green and 1 point for each yellow 
     // and returns the sum across all answers in the answer pool
     public int getGuessScore(Guess guess) {
         int score = 0;
-        for(Answer answer : answers) { 
-            boolean[] answerVector = answer.getVector();
-            for(int i = 0; i < 5; i++) {
-                char guessChar = guess.getWord().charAt(i);
-                if(guessChar == answer.getWord().charAt(i)) {
-                    score += 1;
-                }
-                if(answerVector[guessChar - 'a']) score++;
-            }
+        for(int i = 0; i < 5; i++) {
+            int c = guess.charAt(i) - 'a';
+            score += stats.positionCount(i, c) + stats.answersWithLetter(c);
         }
         return score;
     }
 
+    // each answer eliminates every answer outside of its group, so the total
+    // is the number of answers squared minus the sum of the squared group sizes
     public int getGuessesTotalElims(Guess... guesses) {
-        int count = 0;
-        Map<DetailedHint, Integer> seenHints = new HashMap<>();
+        long n = answers.size();
+        return (int) (n * n - getPartition(guesses).sumOfSquares());
+    }
+
+    /**
+     * Returns the sum of the squared group sizes of each guess's partition of this pool,
+     * computed in tiles (see TiledScorer) so it works no matter how many guesses or answers there are
+     */
+    public long[] getGuessSumsOfSquares(Guess[] guesses) {
+        return TiledScorer.of(guesses, answers).sumsOfSquares();
+    }
+
+    /**
+     * Returns the pattern the guess gets for each answer in the pool
+     */
+    public int[] getPatterns(Guess guess) {
+        int packedGuess = guess.getPacked();
+        if(getSlab() != null) {
+            int row = slab.rowOf(packedGuess);
+            if(row >= 0) return slab.patterns(row);
+        }
+        int[] patterns = new int[answers.size()];
+        for(int j = 0; j < patterns.length; j++) {
+            patterns[j] = Feedback.compute(packedGuess, answers.get(j).getPacked());
+        }
+        SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, patterns.length);
+        return patterns;
+    }
+
+    /**
+     * Splits the answers into groups that get the same hints from all of the guesses
+     * @param guesses the guesses
+     * @return the partition of the answers in this pool
+     */
+    public Partition getPartition(Guess... guesses) {
+        Partition partition = Partition.whole(answers.size());
+        for(Guess guess : guesses) {
+            partition = refine(partition, guess);
+        }
+        return partition;
+    }
+
+    /**
+     * Splits each group of an existing partition of this pool by the hints of one more guess,
+     * so multi-guess partitions can be built up without recomputing earlier hints
+     * @param partition a partition of this pool's answers
+     * @param guess the new guess
+     * @return the refined partition
+     */
+    public Partition refine(Partition partition, Guess guess) {
+        if(partition.numAnswers() != answers.size()) {
+            throw new IllegalArgumentException("The partition is not of this answer pool");
+        }
+        return partition.refine(getPatterns(guess));
+    }
+
+    /**
+     * Finds the size of the largest group of answers that would all be given the
+     * same hints by the guesses, i.e. the most answers that could remain in the worst case
+     * @param cutoff the largest bucket size worth knowing about; counting stops as soon
+     * as any bucket grows past it
+     * @param guesses the guesses (at most three, since the patterns are combined into an int key)
+     * @return the size of the largest bucket, or a number greater than cutoff if the
+     * largest bucket is greater than cutoff
+     * @throws IllegalArgumentException if there are more than three guesses
+     */
+    public int getLargestBucket(int cutoff, Guess... guesses) {
+        // 243^3 fits in an int but 243^4 doesn't
+        if(guesses.length > 3) {
+            throw new IllegalArgumentException("Can't bucket by more than 3 guesses, got " + guesses.length);
+        }
+        IntCounter counter = new IntCounter(answers.size());
+        int largest = 0;
         for(Answer answer : answers) {
-            DetailedHint hint = new DetailedHint();
-            for(Guess guess : guesses) hint.add(new DetailedHint(guess, answer));
-            if(!seenHints.containsKey(hint)) {
-                seenHints.put(hint, hint.getNumElims(this));
+            int key = 0;
+            for(Guess guess : guesses) {
+                key = key * Feedback.NUM_PATTERNS + Feedback.compute(guess, answer);
+            }
+            SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, guesses.length);
+            int count = counter.increment(key);
+            if(count > largest) {
+                largest = count;
+                if(largest > cutoff) return largest;
             }
-            count += seenHints.get(hint);
         }
-        return count;
+        return largest;
+    }
+
+    /**
+     * Groups the guesses by the way they split this pool (see GuessClasses)
+     */
+    public GuessClasses getGuessClasses(Guess[] guesses) {
+        return GuessClasses.of(this, guesses);
     }
 
-    
     public List<AnswerPool> getChildren(Guess guess) {
-        // maps hints to all of the answers that yield that hint
-        Map<DetailedHint, List<Answer>> map = new HashMap<>();
-        for(Answer answer : answers) {
-            DetailedHint hint = new DetailedHint(guess, answer);
-            if(!map.containsKey(hint)) {
-                map.put(hint, new ArrayList<>());
+        return getChildren(refine(Partition.whole(answers.size()), guess));
+    }
+
+    /**
+     * Makes an AnswerPool out of each group of the partition, forgetting about
+     * the hints that categorized them
+     */
+    public List<AnswerPool> getChildren(Partition partition) {
+        List<AnswerPool> children = new ArrayList<>(partition.numGroups());
+        for(int group = 0; group < partition.numGroups(); group++) {
+            List<Answer> answersList = new ArrayList<>(partition.groupSize(group));
+            for(int j : partition.members(group)) {
+                answersList.add(answers.get(j));
             }
-            map.get(hint).add(answer);
-        }
 
-        // Put the groups of answers into a list of AnswerPools and
-        // forget about the hints that categorized them
-        List<AnswerPool> children = new ArrayList<>(map.size());
-        for(List<Answer> answersList : map.values()) {
-            children.add(new AnswerPool(answersList));
+            // count the child's answers unless it has most of this pool's answers,
+            // in which case it's cheaper to subtract the ones it doesn't have
+            PoolStats childStats;
+            if(2 * answersList.size() <= answers.size()) {
+                childStats = PoolStats.of(answersList);
+            } else {
+                List<Answer> removed = new ArrayList<>(answers.size() - answersList.size());
+                for(int j = 0; j < answers.size(); j++) {
+                    if(partition.groupOf(j) != group) removed.add(answers.get(j));
+                }
+                childStats = PoolStats.without(stats, removed);
+            }
+            AnswerPool child = new AnswerPool(answersList, childStats);
+            if(answersList.size() > 1) {
+                if(slab != null) {
+                    child.parentSlab = slab;
+                    child.parentMembers = partition.members(group);
+                } else if(parentSlab != null) {
+                    // this pool's slab was never needed, so the child gathers straight from
+                    // the slab this pool would have gathered from
+                    int[] members = partition.members(group);
+                    for(int k = 0; k < members.length; k++) members[k] = parentMembers[members[k]];
+                    child.parentSlab = parentSlab;
+                    child.parentMembers = members;
+                }
+            }
+            children.add(child);
         }
-
         return children;
     }
 
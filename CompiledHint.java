@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * A DetailedHint compiled into a predicate on packed words, for when the same hint is
+ * checked against many words (like filtering a pool or the guess list).
+ *
+ * DetailedHint.wordIsCompliant goes through every index and every counted letter, reading
+ * the hint's arrays and the word's letter counts each time. Compiling it keeps only the
+ * checks the hint actually needs, with their masks and bounds worked out ahead of time:
+ * an index is only checked if some letter is ruled out there, greens (the checks most
+ * likely to fail) go first, and letters are counted on the packed word without a loop.
+ */
+public class CompiledHint implements IntPredicate {
+    // a one in the lowest bit of each letter of a packed word
+    private static final int EACH_LETTER = 0b00001_00001_00001_00001_00001;
+    private static final int LOW_BITS = 0b01111 * EACH_LETTER;
+    private static final int HIGH_BITS = 0b10000 * EACH_LETTER;
+
+    // the word's letter at shifts[k] must be in masks[k]
+    private final int[] shifts;
+    private final int[] masks;
+    // the counted letters repeated in every 5 bit field, and the bounds on the number of
+    // fields of the word that differ from it (5 minus the bounds on the letter's count)
+    private final int[] repeatedLetters;
+    private final int[] minDiffering;
+    private final int[] maxDiffering;
+
+    /**
+     * @param allowedLetters the letters allowed at each index (see DetailedHint)
+     * @param minCounts the fewest times each letter can occur
+     * @param maxCounts the most times each letter can occur
+     * @param countedLetters the letters whose counts need to be checked
+     */
+    CompiledHint(int[] allowedLetters, byte[] minCounts, byte[] maxCounts, int countedLetters) {
+        int allLetters = (1 << 26) - 1;
+        List<Integer> indeces = new ArrayList<>();
+        // greens first since they rule out the most words
+        for(int i = 0; i < 5; i++) {
+            if(Integer.bitCount(allowedLetters[i]) == 1) indeces.add(i);
+        }
+        for(int i = 0; i < 5; i++) {
+            int allowed = allowedLetters[i];
+            if(allowed != allLetters && Integer.bitCount(allowed) != 1) indeces.add(i);
+        }
+        shifts = new int[indeces.size()];
+        masks = new int[indeces.size()];
+        for(int k = 0; k < shifts.length; k++) {
+            shifts[k] = 5 * indeces.get(k);
+            masks[k] = allowedLetters[indeces.get(k)];
+        }
+
+        int numCounted = Integer.bitCount(countedLetters);
+        repeatedLetters = new int[numCounted];
+        minDiffering = new int[numCounted];
+        maxDiffering = new int[numCounted];
+        int k = 0;
+        for(int letters = countedLetters; letters != 0; letters &= letters - 1) {
+            int c = Integer.numberOfTrailingZeros(letters);
+            repeatedLetters[k] = c * EACH_LETTER;
+            minDiffering[k] = 5 - maxCounts[c];
+            maxDiffering[k] = 5 - minCounts[c];
+            k++;
+        }
+    }
+
+    /**
+     * Returns whether the packed word complies with the hint
+     */
+    @Override
+    public boolean test(int packed) {
+        for(int k = 0; k < shifts.length; k++) {
+            if((masks[k] >>> ((packed >>> shifts[k]) & 31) & 1) == 0) return false;
+        }
+        for(int k = 0; k < repeatedLetters.length; k++) {
+            // xoring with the letter repeated zeroes out the word's matching letters, and the
+            // high bit of each field is then set if the field isn't zero
+            int x = packed ^ repeatedLetters[k];
+            int differing = Integer.bitCount((((x & LOW_BITS) + LOW_BITS) | x) & HIGH_BITS);
+            if(differing < minDiffering[k] || differing > maxDiffering[k]) return false;
+        }
+        return true;
+    }
+
+    public boolean wordIsCompliant(WordleWord word) {
+        return test(word.getPacked());
+    }
+
+    /**
+     * Returns the words that comply with the hint, in order
+     */
+    public <T extends WordleWord> List<T> filter(List<T> words) {
+        List<T> ret = new ArrayList<>();
+        for(T word : words) {
+            if(test(word.getPacked())) ret.add(word);
+        }
+        SolverMetrics.add(SolverMetrics.Counter.COMPLIANCE_CHECKS, words.size());
+        return ret;
+    }
+
+    /**
+     * Returns the number of words that comply with the hint
+     */
+    public int count(List<? extends WordleWord> words) {
+        int count = 0;
+        for(WordleWord word : words) {
+            if(test(word.getPacked())) count++;
+        }
+        SolverMetrics.add(SolverMetrics.Counter.COMPLIANCE_CHECKS, words.size());
+        return count;
+    }
+
+    /**
+     * Returns the number of checks the hint compiled to
+     */
+    public int numChecks() {
+        return shifts.length + repeatedLetters.length;
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Estimates the expected number of guesses to solve a pool before it's solved, for
+ * deciding which guesses to try first in a tree search and which ones can be skipped.
+ *
+ * The estimate is calibrated on pools that were actually solved: for each pool size, the
+ * mean, smallest and biggest cost seen, which gives the estimate's error bounds. Sizes that
+ * were never seen use a fit of cost = a + b * ln(size) over the sizes that were, with the
+ * fit's worst residuals as its error bounds. A guess's groups are estimated one by one
+ * and weighted by their size (see estimateChildren).
+ *
+ * Calibrated bounds only cover the pools they were calibrated on, so pruning uses
+ * lowerBound instead, which holds for every pool: a guess solves at most one answer, and
+ * splits the rest into at most 242 groups that can each have one answer solved on the
+ * next guess, and so on.
+ *
+ * A model is saved as the samples it was calibrated on (see write), so it can be
+ * calibrated once and loaded by every solver after that.
+ */
+public class CostModel {
+    /**
+     * A model with no calibration, which estimates every pool by its lower bound
+     */
+    public static final CostModel UNCALIBRATED = new CostModel(new int[0], new double[0]);
+
+    private static final double EPSILON = 1e-9;
+    private static final int MAGIC = 0x434F5354; // "COST"
+
+    // the samples the model was calibrated on, for writing it
+    private final int[] sizes;
+    private final double[] costs;
+
+    // per size statistics, indexed by pool size
+    private final int[] counts;
+    private final double[] means;
+    private final double[] mins;
+    private final double[] maxes;
+    // cost = intercept + slope * ln(size) for sizes that weren't calibrated
+    private final double intercept;
+    private final double slope;
+    private final double fitErrorBelow;
+    private final double fitErrorAbove;
+    private final boolean fitted;
+
+    /**
+     * @param sizes the sizes of the solved pools
+     * @param costs the expected number of guesses each pool was solved in
+     */
+    public CostModel(int[] sizes, double[] costs) {
+        this.sizes = sizes.clone();
+        this.costs = costs.clone();
+        int maxSize = 0;
+        for(int size : sizes) maxSize = Math.max(maxSize, size);
+        counts = new int[maxSize + 1];
+        means = new double[maxSize + 1];
+        mins = new double[maxSize + 1];
+        maxes = new double[maxSize + 1];
+        Arrays.fill(mins, Double.MAX_VALUE);
+        for(int k = 0; k < sizes.length; k++) {
+            int size = sizes[k];
+            counts[size]++;
+            means[size] += costs[k];
+            mins[size] = Math.min(mins[size], costs[k]);
+            maxes[size] = Math.max(maxes[size], costs[k]);
+        }
+        for(int size = 0; size <= maxSize; size++) {
+            if(counts[size] > 0) means[size] /= counts[size];
+        }
+
+        // least squares over the samples (not the sizes), so common sizes count for more
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        int n = 0;
+        for(int k = 0; k < sizes.length; k++) {
+            if(sizes[k] < 2) continue;
+            double x = Math.log(sizes[k]);
+            sumX += x;
+            sumY += costs[k];
+            sumXX += x * x;
+            sumXY += x * costs[k];
+            n++;
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        fitted = n >= 2 && denominator > EPSILON;
+        slope = fitted ? (n * sumXY - sumX * sumY) / denominator : 0;
+        intercept = fitted ? (sumY - slope * sumX) / n : 0;
+        double below = 0, above = 0;
+        for(int k = 0; fitted && k < sizes.length; k++) {
+            if(sizes[k] < 2) continue;
+            double residual = costs[k] - (intercept + slope * Math.log(sizes[k]));
+            below = Math.max(below, -residual);
+            above = Math.max(above, residual);
+        }
+        fitErrorBelow = below;
+        fitErrorAbove = above;
+    }
+
+    /**
+     * Solves the pools and calibrates a model on them
+     * @param solver the solver whose costs should be estimated
+     * @param pools the pools to solve
+     */
+    public static CostModel calibrate(TreeSolver solver, Collection<AnswerPool> pools) {
+        int[] sizes = new int[pools.size()];
+        double[] costs = new double[pools.size()];
+        int k = 0;
+        for(AnswerPool answerPool : pools) {
+            sizes[k] = answerPool.size();
+            costs[k++] = solver.solve(answerPool).getCost();
+        }
+        return new CostModel(sizes, costs);
+    }
+
+    /**
+     * Reads a model written with write
+     */
+    public static CostModel load(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if(buffer.getInt() != MAGIC) throw new IOException("Not a cost model: " + path);
+        int numSamples = buffer.getInt();
+        int[] sizes = new int[numSamples];
+        double[] costs = new double[numSamples];
+        for(int k = 0; k < numSamples; k++) {
+            sizes[k] = buffer.getInt();
+            costs[k] = buffer.getDouble();
+        }
+        return new CostModel(sizes, costs);
+    }
+
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + sizes.length * (Integer.BYTES + Double.BYTES));
+        buffer.putInt(MAGIC).putInt(sizes.length);
+        for(int k = 0; k < sizes.length; k++) buffer.putInt(sizes[k]).putDouble(costs[k]);
+        Files.write(path, buffer.array());
+    }
+
+    /**
+     * Returns the fewest guesses any strategy could be expected to solve a pool of the
+     * given size in, counting the guess that solves it
+     */
+    public static double lowerBound(int size) {
+        if(size <= 1) return size;
+        // one answer can be solved with each guess, then one in each group it leaves
+        long total = 0;
+        long left = size;
+        long solvable = 1;
+        for(int guess = 1; left > 0; guess++) {
+            long solved = Math.min(left, solvable);
+            total += guess * solved;
+            left -= solved;
+            solvable = Math.min(solvable * (Feedback.NUM_PATTERNS - 1), Integer.MAX_VALUE);
+        }
+        return (double) total / size;
+    }
+
+    private boolean isCalibrated(int size) {
+        return size < counts.length && counts[size] > 0;
+    }
+
+    /**
+     * Returns the expected number of guesses to solve a pool of the given size
+     */
+    public double estimate(int size) {
+        double estimate;
+        if(isCalibrated(size)) estimate = means[size];
+        else if(fitted && size >= 2) estimate = intercept + slope * Math.log(size);
+        else estimate = lowerBound(size);
+        return Math.max(estimate, lowerBound(size));
+    }
+
+    /**
+     * Returns how far below the estimate a pool of the given size's cost has been seen
+     */
+    public double getErrorBelow(int size) {
+        if(isCalibrated(size)) return means[size] - mins[size];
+        return fitted ? fitErrorBelow : 0;
+    }
+
+    /**
+     * Returns how far above the estimate a pool of the given size's cost has been seen
+     */
+    public double getErrorAbove(int size) {
+        if(isCalibrated(size)) return maxes[size] - means[size];
+        return fitted ? fitErrorAbove : 0;
+    }
+
+    /**
+     * Estimates the expected number of guesses after a guess, not counting the guess
+     * @param partition the way the guess splits the pool
+     * @param solvedGroup the group that is just the guess, or -1 if it isn't in the pool
+     */
+    public double estimateChildren(Partition partition, int solvedGroup) {
+        double total = 0;
+        for(int group = 0; group < partition.numGroups(); group++) {
+            if(group == solvedGroup) continue;
+            int size = partition.groupSize(group);
+            total += size * estimate(size);
+        }
+        return total / partition.numAnswers();
+    }
+
+    /**
+     * Solves the pools and counts the ones that cost less than lowerBound (which should
+     * never happen) or fall outside the calibrated error bounds
+     * @return the number of lower bound violations and the number of pools outside the error bounds
+     */
+    public int[] countViolations(TreeSolver solver, Collection<AnswerPool> pools) {
+        int[] violations = new int[2];
+        for(AnswerPool answerPool : pools) {
+            int size = answerPool.size();
+            double cost = solver.solve(answerPool).getCost();
+            if(cost < lowerBound(size) - EPSILON) violations[0]++;
+            double estimate = estimate(size);
+            if(cost < estimate - getErrorBelow(size) - EPSILON || cost > estimate + getErrorAbove(size) + EPSILON) {
+                violations[1]++;
+            }
+        }
+        return violations;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%6s %8s %10s %10s %10s %10s%n", "size", "pools", "estimate", "-error", "+error", "bound"));
+        for(int size = 1; size < counts.length; size++) {
+            if(counts[size] == 0) continue;
+            sb.append(String.format("%6d %8d %10.4f %10.4f %10.4f %10.4f%n", size, counts[size],
+                    estimate(size), getErrorBelow(size), getErrorAbove(size), lowerBound(size)));
+        }
+        if(fitted) {
+            sb.append(String.format("other sizes: %.4f + %.4f ln(size) (-%.4f, +%.4f)%n",
+                    intercept, slope, fitErrorBelow, fitErrorAbove));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Calibrates a model on the pools one and two guesses deep after the first opener and
+     * writes it to modelFile, then checks its bounds against the pools the other openers
+     * reach that it wasn't calibrated on: solved the same way, and the small ones solved
+     * exhaustively (trying every guess, without pruning by lowerBound). Fails if any pool
+     * costs less than lowerBound.
+     *
+     * Usage (from the directory with io/): java CostModel storeFile modelFile numCandidates maxCheckedSize openers...
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 6) {
+            System.out.println("Usage: java CostModel storeFile modelFile numCandidates maxCheckedSize openers...");
+            System.out.println("(at least two openers, the first to calibrate on and the rest to check against)");
+            return;
+        }
+        WordleCalculator calc = new WordleCalculator();
+        Guess[] guesses = calc.getGuesses();
+        int maxCheckedSize = Integer.parseInt(args[3]);
+        try(SolutionStore store = new SolutionStore(new File(args[0]).toPath())) {
+            TreeSolver solver = new TreeSolver(guesses, Integer.parseInt(args[2]), store);
+            TreeSolver exhaustive = new TreeSolver(guesses, Integer.MAX_VALUE, null, UNCALIBRATED, false);
+
+            Map<Long, AnswerPool> calibration = new LinkedHashMap<>();
+            addPools(calc, solver, args[4], calibration);
+            Map<Long, AnswerPool> heldOut = new LinkedHashMap<>();
+            for(int k = 5; k < args.length; k++) addPools(calc, solver, args[k], heldOut);
+            // a pool two openers both reach isn't held out
+            heldOut.keySet().removeAll(calibration.keySet());
+            List<AnswerPool> small = new ArrayList<>();
+            for(AnswerPool answerPool : heldOut.values()) {
+                if(answerPool.size() <= maxCheckedSize) small.add(answerPool);
+            }
+
+            CostModel model = calibrate(solver, calibration.values());
+            model.write(Paths.get(args[1]));
+            System.out.print(model);
+            int[] violations = model.countViolations(solver, heldOut.values());
+            System.out.println(String.format("%,d held out pools: %,d below the lower bound, %,d outside the error bounds",
+                    heldOut.size(), violations[0], violations[1]));
+            int[] exhaustiveViolations = model.countViolations(exhaustive, small);
+            System.out.println(String.format("%,d held out pools solved exhaustively: %,d below the lower bound, %,d outside the error bounds",
+                    small.size(), exhaustiveViolations[0], exhaustiveViolations[1]));
+            if(violations[0] > 0 || exhaustiveViolations[0] > 0) {
+                throw new AssertionError("Some pools cost less than the lower bound");
+            }
+        }
+    }
+
+    // adds the pools with more than one answer one and two guesses deep after the opener, by fingerprint
+    private static void addPools(WordleCalculator calc, TreeSolver solver, String opener, Map<Long, AnswerPool> pools) {
+        for(AnswerPool child : calc.getRootAnswerPool().getChildren(new Guess(opener))) {
+            if(child.size() <= 1) continue;
+            pools.putIfAbsent(child.getFingerprint(), child);
+            Guess next = solver.solve(child).getGuess();
+            for(AnswerPool grandchild : child.getChildren(next)) {
+                if(grandchild.size() > 1) pools.putIfAbsent(grandchild.getFingerprint(), grandchild);
+            }
+        }
+    }
+}
@@ -1,305 +1,152 @@
 import java.util.*;
 
 public class DetailedHint {
+    // bitmask with one bit for each letter of the alphabet
+    private static final int ALL_LETTERS = (1 << 26) - 1;
 
-    static class DuplicateCharacter {
-        char c;
-        Set<Integer> greenIndeces;
-        Set<Integer> yellowIndeces;
-        boolean hasGray;
+    // allowedLetters[i] has bit c set if the c-th letter of the alphabet can still be at index i.
+    // Greens leave one bit, and yellows and grays clear the bit of their letter
+    private int[] allowedLetters;
 
-        /**
-         * Constuctor for a hint centered around a repeating character
-         * @param c the character
-         * @param greenIndeces the indeces at which the character must be
-         * @param yellowIndeces the indeces at which the character can not be
-         * @param hasGray true if at least one of the characters was given a gray hint, false otherwise
-         */
-        private DuplicateCharacter(char c, Set<Integer> greenIndeces, Set<Integer> yellowIndeces, boolean hasGray) {
-            this.c = c;
-            this.greenIndeces = greenIndeces;
-            this.yellowIndeces = yellowIndeces;
+    // minCounts[c] = the fewest times the c-th letter can occur (from greens and yellows)
+    private byte[] minCounts;
 
-            // If any of the duplicate letters are gray, there must be exactly G + Y occurences; otherwise, there
-            // are greater than or equal to G + Y occurences
-            this.hasGray = hasGray;
-        }
-
-        private boolean wordIsCompliant(String word) {
-            // indeces at which the character could still be (starts as everything except yellows)
-            Set<Integer> availableIndeces = new HashSet<>(5 - yellowIndeces.size());
-            for(int i = 0; i < 5; i++) {
-                if(!yellowIndeces.contains(i)) {
-                    availableIndeces.add(i);
-                }
-            }
-
-            for(int i : greenIndeces) {
-                if(word.charAt(i) == c) availableIndeces.remove(i);
-                else return false;
-            }
-
-            int count = 0; // counts non-green occurences of c
-            if(hasGray) {
-                // return true only if count equals the number of yellows
-                for(int i : availableIndeces) {
-                    if(word.charAt(i) == c) {
-                        count++;
-                        if(count > yellowIndeces.size()) return false;
-                    }
-                }
-                return count == yellowIndeces.size();
-            } else {
-                // return true once the count is high enough, false otherwise
-                for(int i : availableIndeces) {
-                    if(word.charAt(i) == c) {
-                        count++;
-                        if(count == yellowIndeces.size()) return true;
-                    } 
-                }
-                return false;
-            }
-        }
-    
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder(c + " occurs ");
-            if(!hasGray) sb.append("at least ");
-            sb.append(greenIndeces.size() + yellowIndeces.size() + " times\n");
-            sb.append("    It must be at these indeces: ");
-            for(int i : greenIndeces) sb.append(i + " ");
-            sb.append("\n");
-            sb.append("    It can't be at these indeces: ");
-            for(int i : yellowIndeces) sb.append(i + " ");
-            sb.append("\n");
+    // maxCounts[c] = the most times the c-th letter can occur. A gray caps it at the
+    // number of greens and yellows the same letter got in that guess
+    private byte[] maxCounts;
 
-            return sb.toString();
-        }
-    }
-
-    // set of all invalid characters
-    private Set<Character> grayChars;
-    
-    // map yellow characters to all of their invalid indeces
-    private Map<Character, ArrayList<Boolean>> yellowChars;
-
-    // set of all character/index pairs
-    private Map<Integer, Character> greenChars;
-
-    // set of all duplicate characters
-    private Set<DuplicateCharacter> duplicateChars;
+    // letters with a min count above zero or a max count below five, i.e. the only
+    // letters whose occurences need to be counted when checking compliance
+    private int countedLetters;
 
 
     public DetailedHint() {
-        greenChars = new HashMap<>();
-        yellowChars = new HashMap<>();
-        grayChars = new HashSet<>();
-        duplicateChars = new HashSet<>();
+        allowedLetters = new int[5];
+        Arrays.fill(allowedLetters, ALL_LETTERS);
+        minCounts = new byte[26];
+        maxCounts = new byte[26];
+        Arrays.fill(maxCounts, (byte) 5);
+        countedLetters = 0;
     }
 
     public DetailedHint(Guess guess, Answer answer) {
-        this();
-
-        // letterIsHinted[i] = the i-th letter in the guess has been assigned a green or yellow hint
-        boolean[] letterIsHinted = new boolean[5];
-
-        // letterIsUsed[i] = the i-th letter in the answer has been used for a green or yellow hint
-        boolean[] letterIsUsed = new boolean[5];
+        this(guess, Feedback.compute(guess, answer));
+        SolverMetrics.increment(SolverMetrics.Counter.HINTS_COMPUTED);
+    }
 
-        // green chars
-        for(int i = 0; i < 5; i++) {
-            if(guess.charAt(i) == answer.charAt(i)) {
-                greenChars.put(i, guess.charAt(i));
-                letterIsHinted[i] = true;
-                letterIsUsed[i] = true;
-            }
-        }
+    /**
+     * Constructs the hint given by a guess that was colored with the given pattern
+     * @param guess the guess
+     * @param pattern the pattern code (see Feedback)
+     */
+    public DetailedHint(WordleWord guess, int pattern) {
+        this();
 
-        // yellow chars
-        for(int i = 0; i < 5; i++) {
-            if(letterIsHinted[i]) continue;
-            for(int j = 0; j < 5; j++) {
-                if(letterIsUsed[j]) continue;
-                char c = guess.charAt(i);
-                if(c == answer.charAt(j)) {
-                    // if the character is already yellow, add the new index
-                    // otherwise, make a new entry
-                    if(yellowChars.containsKey(c)) {
-                        yellowChars.get(c).set(i, Boolean.TRUE);
-                    } else {
-                        yellowChars.put(c, new ArrayList<>(5));
-                        for(int k = 0; k < 5; k++) {
-                            yellowChars.get(c).add(Boolean.FALSE);
-                        }
-                        yellowChars.get(c).set(i, Boolean.TRUE);
-                    }
-                    
-                    letterIsHinted[i] = true;
-                    letterIsUsed[j] = true;
-                }
-            }
-        }
+        // hinted[c] = number of greens and yellows given to the c-th letter
+        byte[] hinted = new byte[26];
+        // letters that were given at least one gray
+        int grayLetters = 0;
 
-        // gray chars
         for(int i = 0; i < 5; i++) {
-            if(!letterIsHinted[i]) {
-                grayChars.add(guess.charAt(i));
+            int c = guess.charAt(i) - 'a';
+            switch(Feedback.stateAt(pattern, i)) {
+                case Feedback.GREEN:
+                    allowedLetters[i] = 1 << c;
+                    hinted[c]++;
+                    break;
+                case Feedback.YELLOW:
+                    allowedLetters[i] &= ~(1 << c);
+                    hinted[c]++;
+                    break;
+                default:
+                    allowedLetters[i] &= ~(1 << c);
+                    grayLetters |= 1 << c;
             }
         }
 
-        // deal with duplicate letters
-        Set<Character> seen = new HashSet<>();
-        Set<Character> duplicates = new HashSet<>();
         for(int i = 0; i < 5; i++) {
-            char c = guess.charAt(i);
-            if(seen.contains(c)) duplicates.add(c);
-            else seen.add(c);
-        }
-
-        // don't give special treatment to the duplicate character if
-        // it is not in the answer
-        duplicates.removeIf(
-            c -> !greenChars.values().contains(c) && !yellowChars.containsKey(c)
-        );
-
-        for(char c : duplicates) {
-            Set<Integer> greenIndeces = new HashSet<>();
-            Set<Integer> yellowIndeces = new HashSet<>();
-
-            // green chars
-            Iterator<Map.Entry<Integer, Character>> iterator = greenChars.entrySet().iterator();
-            while(iterator.hasNext()) {
-                Map.Entry<Integer, Character> entry = iterator.next();
-                if(entry.getValue().equals(c)) {
-                    greenIndeces.add(entry.getKey());
-                    iterator.remove();
-                }
-            }
-
-            // yellow chars
-            if(yellowChars.containsKey(c)) {
-                ArrayList<Boolean> indexIsInvalid = yellowChars.get(c);
-                for(int i = 0; i < 5; i++) {
-                    if(Boolean.TRUE.equals(indexIsInvalid.get(i))) {
-                        yellowIndeces.add(i);
-                    }
-                }
-                yellowChars.remove(c);
-            }
-
-            // gray chars
-            boolean hasGray = grayChars.contains(c);
-            grayChars.remove(c);
-            duplicateChars.add(new DuplicateCharacter(c, greenIndeces, yellowIndeces, hasGray));
+            int c = guess.charAt(i) - 'a';
+            minCounts[c] = hinted[c];
+            if((grayLetters & (1 << c)) != 0) maxCounts[c] = hinted[c];
         }
+        normalize();
     }
 
     public DetailedHint(SequentialHint sequentialHint) {
-        // TODO: finish implementation (for user inputted hints)
+        this(sequentialHint.getGuess(), sequentialHint.getPattern());
     }
 
     // copy constructor to keep a prefix sum of hints for hard mode
     public DetailedHint(DetailedHint other) {
-        this();
-        this.grayChars.addAll(other.grayChars);
-        this.yellowChars.putAll(other.yellowChars);
-        this.greenChars.putAll(other.greenChars);
+        this.allowedLetters = other.allowedLetters.clone();
+        this.minCounts = other.minCounts.clone();
+        this.maxCounts = other.maxCounts.clone();
+        this.countedLetters = other.countedLetters;
     }
 
-    public boolean wordIsCompliant(WordleWord wordleWord) {
-        String word = wordleWord.getWord();
-        // green chars first
-        for(Map.Entry<Integer, Character> entry : greenChars.entrySet()) {
-            if(word.charAt(entry.getKey()) != entry.getValue()) {
-                return false;
+    /**
+     * helper method to clear letters that can't occur from every index
+     * and to recompute which letters need to be counted
+     */
+    private void normalize() {
+        countedLetters = 0;
+        for(int c = 0; c < 26; c++) {
+            if(maxCounts[c] == 0) {
+                for(int i = 0; i < 5; i++) allowedLetters[i] &= ~(1 << c);
+            } else if(minCounts[c] > 0 || maxCounts[c] < 5) {
+                countedLetters |= 1 << c;
             }
         }
+    }
 
-        // yellow chars
-        for(Map.Entry<Character, ArrayList<Boolean>> entry : yellowChars.entrySet()) {
-            int index = word.indexOf(entry.getKey());
-            if(index == -1 || Boolean.TRUE.equals(entry.getValue().get(index))) {
+    public boolean wordIsCompliant(WordleWord word) {
+        SolverMetrics.increment(SolverMetrics.Counter.COMPLIANCE_CHECKS);
+        // every letter must be allowed at its index (greens, yellows, and grays)
+        for(int i = 0; i < 5; i++) {
+            if((allowedLetters[i] & (1 << (word.charAt(i) - 'a'))) == 0) {
                 return false;
             }
         }
 
-        // gray chars
-        for(Character c : grayChars) {
-            for(int i = 0; i < 5; i++) {
-                if(word.charAt(i) == c) return false;
-            }
-        }
-
-        // duplicate chars
-        for(DuplicateCharacter c : duplicateChars) {
-            if(!c.wordIsCompliant(word)) return false;
+        // every letter with a known count must occur a valid number of times
+        // (yellows and duplicate letters)
+        int letters = countedLetters;
+        while(letters != 0) {
+            int c = Integer.numberOfTrailingZeros(letters);
+            letters &= letters - 1;
+            int count = word.letterCount(c);
+            if(count < minCounts[c] || count > maxCounts[c]) return false;
         }
 
         return true;
     }
 
     /**
-     * helper method to promote yellow hints with 4 invalid indeces
-     * to green hints
+     * Compiles the hint for checking it against many words (see CompiledHint). Changes
+     * made to this hint afterwards aren't seen by the compiled one.
      */
-    private void promoteYellows() {
-        Iterator<Character> iterator = yellowChars.keySet().iterator();
-        while(iterator.hasNext()) {
-            Character key = iterator.next();
-            ArrayList<Boolean> thisList = this.yellowChars.get(key);
-            // promote the yellow hint to a green hint if the combined boolean array
-            // has only one false
-            int lastValidIndex = -1; // becomes the only valid index if there is only one 
-            boolean promote = true;
-            for(int i = 0; i < 5 && promote; i++) {
-                if(Boolean.FALSE.equals(thisList.get(i))) {
-                    if(lastValidIndex != -1) promote = false;
-                    else lastValidIndex = i;
-                }
-            }
-            if(promote) {
-                greenChars.put(lastValidIndex, key);
-                iterator.remove();
-            }
-        }
+    public CompiledHint compile() {
+        return new CompiledHint(allowedLetters.clone(), minCounts.clone(), maxCounts.clone(), countedLetters);
     }
 
+    /**
+     * Combines another hint into this one, so that a word complies with this hint
+     * afterwards if and only if it complied with both hints before
+     * @param other the hint to add
+     */
     public void add(DetailedHint other) {
-        // green chars
-        this.greenChars.putAll(other.greenChars);
-
-        // yellow chars
-        for(Map.Entry<Character, ArrayList<Boolean>> entry : other.yellowChars.entrySet()) {
-            Character c = entry.getKey();
-            ArrayList<Boolean> otherList = entry.getValue();
-            if(this.yellowChars.containsKey(c)) {
-                ArrayList<Boolean> thisList = this.yellowChars.get(c);
-                for(int i = 0; i < 5; i++) {
-                    if(Boolean.FALSE.equals(thisList.get(i)) && Boolean.TRUE.equals(otherList.get(i))) {
-                        thisList.set(i, true);
-                    }
-                }
-            } else {
-                this.yellowChars.put(c, otherList);
-            }
-
+        for(int i = 0; i < 5; i++) {
+            this.allowedLetters[i] &= other.allowedLetters[i];
         }
-
-        promoteYellows();
-
-        // gray chars
-        this.grayChars.addAll(other.grayChars);
-
-        //TODO: add duplicate characters and promote them to greens if needed
-
+        for(int c = 0; c < 26; c++) {
+            if(other.minCounts[c] > this.minCounts[c]) this.minCounts[c] = other.minCounts[c];
+            if(other.maxCounts[c] < this.maxCounts[c]) this.maxCounts[c] = other.maxCounts[c];
+        }
+        normalize();
     }
 
     public int getNumElims(AnswerPool answerPool) {
-        int count = 0;
-        for(Answer answer : answerPool.getAnswers()) {
-            if(!wordIsCompliant(answer)) count++;
-        }
-        return count;
+        return answerPool.size() - compile().count(answerPool.getAnswers());
     }
 
     @Override
@@ -307,68 +154,68 @@ public class DetailedHint {
         if(obj == null) return false;
         if(obj.getClass() != this.getClass()) return false;
         DetailedHint other = (DetailedHint) obj;
-        
-        return this.greenChars.equals(other.greenChars) &&
-        this.yellowChars.equals(other.yellowChars) &&
-        this.grayChars.equals(other.grayChars) &&
-        this.duplicateChars.equals(other.duplicateChars);
+
+        return Arrays.equals(this.allowedLetters, other.allowedLetters) &&
+        Arrays.equals(this.minCounts, other.minCounts) &&
+        Arrays.equals(this.maxCounts, other.maxCounts);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(greenChars, yellowChars, grayChars, duplicateChars);
+        return 31 * (31 * Arrays.hashCode(allowedLetters) + Arrays.hashCode(minCounts))
+                + Arrays.hashCode(maxCounts);
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        if(!grayChars.isEmpty()) {
-            sb.append("Gray hints:\n");
-            for(Character c : grayChars) {
-                sb.append(c + " ");
-            }
-            sb.append("\n");
+
+        StringBuilder grays = new StringBuilder();
+        for(int c = 0; c < 26; c++) {
+            if(maxCounts[c] == 0) grays.append((char) ('a' + c) + " ");
         }
-        
-        if(!yellowChars.isEmpty()) {
-            sb.append("Yellow hints:\n");
-            for(Map.Entry<Character, ArrayList<Boolean>> entry : yellowChars.entrySet()) {
-                ArrayList<Integer> invalidIndeces = new ArrayList<>();
-                for(int i = 0; i < entry.getValue().size(); i++) {
-                    if(Boolean.TRUE.equals(entry.getValue().get(i))) {
-                        invalidIndeces.add(i);
-                    }
-                }
-    
-                switch(invalidIndeces.size()) {
-                    case 0: sb.append("Error: \"" + entry.getKey() + "\" should have at least one invalid index");
-                    break;
-                    case 1: sb.append("\"" + entry.getKey() + "\" can't be at index " + invalidIndeces.get(0));
-                    break;
-                    default:
-                    sb.append("\"" + entry.getKey() + "\" can't be at indeces ");
-                    for(int i = 0; i < invalidIndeces.size() - 1; i++) {
-                        sb.append(invalidIndeces.get(i) + ", ");
-                    }
-                    sb.append(invalidIndeces.get(invalidIndeces.size() - 1));
-                }
-                sb.append("\n");
+        if(grays.length() > 0) {
+            sb.append("Gray hints:\n").append(grays).append("\n");
+        }
+
+        StringBuilder yellows = new StringBuilder();
+        for(int c = 0; c < 26; c++) {
+            if(minCounts[c] == 0) continue;
+            List<Integer> invalidIndeces = new ArrayList<>();
+            for(int i = 0; i < 5; i++) {
+                if((allowedLetters[i] & (1 << c)) == 0) invalidIndeces.add(i);
             }
+            if(invalidIndeces.isEmpty()) continue;
+            yellows.append("\"" + (char) ('a' + c) + "\" can't be at ");
+            yellows.append(invalidIndeces.size() == 1 ? "index " : "indeces ");
+            for(int i = 0; i < invalidIndeces.size() - 1; i++) {
+                yellows.append(invalidIndeces.get(i) + ", ");
+            }
+            yellows.append(invalidIndeces.get(invalidIndeces.size() - 1) + "\n");
+        }
+        if(yellows.length() > 0) {
+            sb.append("Yellow hints:\n").append(yellows);
         }
 
-        if(!greenChars.isEmpty()) {
-            sb.append("Green hints:\n");
-            for(Map.Entry<Integer, Character> entry : greenChars.entrySet()) {
-                sb.append(entry.getValue() + " is at index " + entry.getKey() + "\n");
+        StringBuilder greens = new StringBuilder();
+        for(int i = 0; i < 5; i++) {
+            if(Integer.bitCount(allowedLetters[i]) == 1) {
+                char c = (char) ('a' + Integer.numberOfTrailingZeros(allowedLetters[i]));
+                greens.append(c + " is at index " + i + "\n");
             }
         }
-        
-        if(!duplicateChars.isEmpty()) {
-            for(DuplicateCharacter c : duplicateChars) {
-                sb.append(c);
+        if(greens.length() > 0) {
+            sb.append("Green hints:\n").append(greens);
+        }
+
+        for(int c = 0; c < 26; c++) {
+            if(minCounts[c] > 1 || (minCounts[c] > 0 && maxCounts[c] == minCounts[c])) {
+                sb.append((char) ('a' + c) + " occurs ");
+                if(maxCounts[c] != minCounts[c]) sb.append("at least ");
+                sb.append(minCounts[c] + " times\n");
             }
         }
-        
+
         return sb.toString();
     }
 }
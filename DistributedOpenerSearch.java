@@ -0,0 +1,352 @@
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Splits an opener search across several worker processes that share a directory.
+ *
+ * The coordinator shards the first words of the search into work units and writes one file
+ * per unit to todo/. A worker claims a unit by atomically moving its file to claimed/, keeps
+ * touching the claimed file while it works, and writes the unit's top openings to results/.
+ * The coordinator moves units whose claim stops being touched back to todo/ so another worker
+ * can take them, and once every unit has a result it merges them into results.txt and writes
+ * the done file, which tells the workers to exit.
+ *
+ * Usage (from the directory with io/):
+ *   java DistributedOpenerSearch coordinator dir numWords numCandidates topN numUnits [numLocalWorkers]
+ *   java DistributedOpenerSearch worker dir
+ */
+public class DistributedOpenerSearch {
+    // a claim that hasn't been touched in this long is assumed to belong to a dead worker
+    private static final long CLAIM_TIMEOUT_MILLIS = 30_000;
+    private static final long POLL_MILLIS = 500;
+
+    private final Path dir;
+    private final Path todoDir;
+    private final Path claimedDir;
+    private final Path resultsDir;
+    private final Path jobFile;
+    private final Path doneFile;
+
+    public DistributedOpenerSearch(Path dir) {
+        this.dir = dir;
+        todoDir = dir.resolve("todo");
+        claimedDir = dir.resolve("claimed");
+        resultsDir = dir.resolve("results");
+        jobFile = dir.resolve("job.properties");
+        doneFile = dir.resolve("done");
+    }
+
+    /**
+     * Writes the job and its work units, unless the directory already has a job (in which
+     * case the coordinator just resumes it, as long as it's the same job)
+     */
+    public void createJob(int numWords, int numCandidates, int topN, int numUnits) throws IOException {
+        Files.createDirectories(todoDir);
+        Files.createDirectories(claimedDir);
+        Files.createDirectories(resultsDir);
+        if(Files.exists(jobFile)) {
+            Properties job = readJob();
+            checkJobParameter(job, "numWords", numWords);
+            checkJobParameter(job, "numCandidates", numCandidates);
+            checkJobParameter(job, "topN", topN);
+            checkJobParameter(job, "numUnits", numUnits);
+            return;
+        }
+
+        int[] bounds = unitBounds(numWords, numCandidates, numUnits);
+        for(int unit = 0; unit < numUnits; unit++) {
+            Files.writeString(todoDir.resolve(unitName(unit)), bounds[unit] + " " + bounds[unit + 1]);
+        }
+
+        Properties job = new Properties();
+        job.setProperty("numWords", Integer.toString(numWords));
+        job.setProperty("numCandidates", Integer.toString(numCandidates));
+        job.setProperty("topN", Integer.toString(topN));
+        job.setProperty("numUnits", Integer.toString(numUnits));
+        // write the job last so workers never see it without its units
+        Path tmp = dir.resolve("job.properties.tmp");
+        try(Writer writer = Files.newBufferedWriter(tmp)) {
+            job.store(writer, "opener search");
+        }
+        Files.move(tmp, jobFile, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void checkJobParameter(Properties job, String name, int value) {
+        String existing = job.getProperty(name);
+        if(!Integer.toString(value).equals(existing)) {
+            throw new IllegalArgumentException(String.format("%s already has a job with %s=%s, not %d",
+                    dir, name, existing, value));
+        }
+    }
+
+    /**
+     * Splits the first words into ranges with about the same amount of work. The i-th first
+     * word is only paired with the candidates after it, so it has about
+     * (numCandidates - 1 - i choose numWords - 1) openings, and the early ranges are shorter.
+     * @return the bounds of the ranges: the u-th unit gets the first words from bounds[u]
+     * (inclusive) to bounds[u + 1] (exclusive)
+     */
+    static int[] unitBounds(int numWords, int numCandidates, int numUnits) {
+        double[] work = new double[numCandidates];
+        double total = 0;
+        for(int i = 0; i < numCandidates; i++) {
+            work[i] = choose(numCandidates - 1 - i, numWords - 1);
+            total += work[i];
+        }
+        int[] bounds = new int[numUnits + 1];
+        double done = 0;
+        int i = 0;
+        for(int unit = 1; unit < numUnits; unit++) {
+            double target = total * unit / numUnits;
+            // take words until the unit has at least its share, stopping short if that's closer
+            while(i < numCandidates && done + work[i] / 2 < target) done += work[i++];
+            bounds[unit] = i;
+        }
+        bounds[numUnits] = numCandidates;
+        return bounds;
+    }
+
+    private static double choose(int n, int k) {
+        double ret = 1;
+        for(int j = 0; j < k; j++) ret = ret * (n - j) / (j + 1);
+        return Math.max(ret, 0);
+    }
+
+    private Properties readJob() throws IOException {
+        Properties job = new Properties();
+        try(Reader reader = Files.newBufferedReader(jobFile)) {
+            job.load(reader);
+        }
+        return job;
+    }
+
+    private static String unitName(int unit) {
+        return String.format("unit-%05d", unit);
+    }
+
+    /**
+     * Waits for every unit to have a result, reassigning units whose workers stopped
+     * responding, then merges the results
+     * @return the best openings over all units, best first
+     */
+    public List<OpenerResult> coordinate() throws IOException, InterruptedException {
+        Properties job = readJob();
+        int numUnits = Integer.parseInt(job.getProperty("numUnits"));
+        int lastReported = -1;
+        while(true) {
+            int numDone = 0;
+            for(int unit = 0; unit < numUnits; unit++) {
+                if(Files.exists(resultsDir.resolve(unitName(unit)))) numDone++;
+            }
+            if(numDone != lastReported) {
+                System.out.print("\r" + numDone + " of " + numUnits + " units done");
+                lastReported = numDone;
+            }
+            if(numDone == numUnits) break;
+            requeueStaleClaims();
+            Thread.sleep(POLL_MILLIS);
+        }
+        System.out.println();
+
+        List<OpenerResult> merged = mergeResults(numUnits, Integer.parseInt(job.getProperty("topN")));
+        try(PrintWriter writer = new PrintWriter(Files.newBufferedWriter(dir.resolve("results.txt")))) {
+            for(OpenerResult result : merged) writer.println(result);
+        }
+        Files.writeString(doneFile, "");
+        return merged;
+    }
+
+    private void requeueStaleClaims() throws IOException {
+        long now = System.currentTimeMillis();
+        List<Path> claims;
+        try(Stream<Path> files = Files.list(claimedDir)) {
+            claims = files.toList();
+        }
+        for(Path claim : claims) {
+            try {
+                String unit = claim.getFileName().toString();
+                if(Files.exists(resultsDir.resolve(unit))) {
+                    Files.deleteIfExists(claim);
+                } else if(now - Files.getLastModifiedTime(claim).toMillis() > CLAIM_TIMEOUT_MILLIS) {
+                    Files.move(claim, todoDir.resolve(unit), StandardCopyOption.ATOMIC_MOVE);
+                    System.out.println("\nReassigning " + unit);
+                }
+            } catch(NoSuchFileException e) {
+                // the worker finished or gave up on the unit in the meantime
+            }
+        }
+    }
+
+    private List<OpenerResult> mergeResults(int numUnits, int topN) throws IOException {
+        List<OpenerResult> all = new ArrayList<>();
+        for(int unit = 0; unit < numUnits; unit++) {
+            for(String line : Files.readAllLines(resultsDir.resolve(unitName(unit)))) {
+                if(line.isBlank()) continue;
+                String[] parts = line.trim().split(" ");
+                Guess[] opening = new Guess[parts.length - 1];
+                for(int i = 1; i < parts.length; i++) opening[i - 1] = new Guess(parts[i]);
+                all.add(new OpenerResult(opening, Long.parseLong(parts[0]), WordleCalculator.NUM_ANSWERS));
+            }
+        }
+        Collections.sort(all);
+        return all.subList(0, Math.min(topN, all.size()));
+    }
+
+    /**
+     * Claims and runs units until the coordinator says the job is done
+     * @param workerId a name for this worker, stored in the claims it holds
+     */
+    public void work(String workerId) throws IOException, InterruptedException {
+        while(!Files.exists(jobFile)) {
+            if(Files.exists(doneFile)) return;
+            Thread.sleep(POLL_MILLIS);
+        }
+        Properties job = readJob();
+        WordleCalculator calc = new WordleCalculator();
+        int numWords = Integer.parseInt(job.getProperty("numWords"));
+        int numCandidates = Integer.parseInt(job.getProperty("numCandidates"));
+        int topN = Integer.parseInt(job.getProperty("topN"));
+
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while(!Files.exists(doneFile)) {
+                Claim claimed = claimUnit(workerId);
+                if(claimed == null) {
+                    Thread.sleep(POLL_MILLIS);
+                    continue;
+                }
+                Path claim = claimed.path;
+                String unit = claim.getFileName().toString();
+                var beat = heartbeat.scheduleAtFixedRate(() -> touch(claim),
+                        CLAIM_TIMEOUT_MILLIS / 4, CLAIM_TIMEOUT_MILLIS / 4, TimeUnit.MILLISECONDS);
+
+                System.out.println(workerId + " searching " + unit);
+                OpenerSearch search = calc.newOpenerSearch(numWords, numCandidates, topN);
+                List<OpenerResult> results = search.search(SearchControl.unlimited(), opening -> {},
+                        claimed.from, claimed.to);
+                beat.cancel(false);
+                writeResults(unit, results);
+                Files.deleteIfExists(claim);
+            }
+        } finally {
+            heartbeat.shutdownNow();
+        }
+    }
+
+    /**
+     * A claimed unit's file and the first words it covers
+     */
+    private static class Claim {
+        final Path path;
+        final int from;
+        final int to;
+
+        Claim(Path path, int from, int to) {
+            this.path = path;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    // returns the claimed unit, or null if there are no units left to claim
+    private Claim claimUnit(String workerId) throws IOException {
+        List<Path> units;
+        try(Stream<Path> files = Files.list(todoDir)) {
+            units = files.sorted().toList();
+        }
+        for(Path unit : units) {
+            Path claim = claimedDir.resolve(unit.getFileName());
+            String range;
+            try {
+                // read before moving, since the claim can be taken back as soon as it's moved
+                range = Files.readAllLines(unit).get(0).trim();
+                Files.move(unit, claim, StandardCopyOption.ATOMIC_MOVE);
+            } catch(NoSuchFileException | FileAlreadyExistsException e) {
+                continue; // another worker got it first
+            }
+            try {
+                // the move keeps the todo file's time, which would look stale already
+                Files.setLastModifiedTime(claim, FileTime.fromMillis(System.currentTimeMillis()));
+                if(Files.exists(resultsDir.resolve(unit.getFileName()))) {
+                    Files.deleteIfExists(claim);
+                    continue;
+                }
+                // record who holds the claim, without recreating it if it was taken back
+                Files.writeString(claim, range + "\n" + workerId + "\n",
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch(NoSuchFileException e) {
+                continue; // the coordinator took the claim back, so another worker will run it
+            }
+            String[] bounds = range.split(" ");
+            return new Claim(claim, Integer.parseInt(bounds[0]), Integer.parseInt(bounds[1]));
+        }
+        return null;
+    }
+
+    private static void touch(Path claim) {
+        try {
+            Files.setLastModifiedTime(claim, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch(IOException e) {
+            // the claim was taken back, so the result will just be a duplicate
+        }
+    }
+
+    private void writeResults(String unit, List<OpenerResult> results) throws IOException {
+        Path tmp = resultsDir.resolve(unit + ".tmp-" + ProcessHandle.current().pid());
+        try(PrintWriter writer = new PrintWriter(Files.newBufferedWriter(tmp))) {
+            for(OpenerResult result : results) {
+                StringBuilder sb = new StringBuilder(Long.toString(result.getSumOfSquares()));
+                for(Guess guess : result.getGuesses()) sb.append(" " + guess);
+                writer.println(sb);
+            }
+        }
+        Files.move(tmp, resultsDir.resolve(unit),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Starts worker processes on this machine with the same java and classpath
+     */
+    private static List<Process> startLocalWorkers(Path dir, int numWorkers) throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        String classpath = System.getProperty("java.class.path");
+        List<Process> workers = new ArrayList<>(numWorkers);
+        for(int i = 0; i < numWorkers; i++) {
+            workers.add(new ProcessBuilder(java, "-cp", classpath,
+                    DistributedOpenerSearch.class.getName(), "worker", dir.toString())
+                    .inheritIO().start());
+        }
+        return workers;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length >= 6 && args[0].equals("coordinator")) {
+            Path dir = Paths.get(args[1]);
+            DistributedOpenerSearch search = new DistributedOpenerSearch(dir);
+            search.createJob(Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]), Integer.parseInt(args[5]));
+            List<Process> workers = args.length >= 7
+                    ? startLocalWorkers(dir, Integer.parseInt(args[6]))
+                    : List.of();
+            search.coordinate().forEach(System.out::println);
+            for(Process worker : workers) worker.waitFor();
+        } else if(args.length == 2 && args[0].equals("worker")) {
+            String workerId = "worker-" + ProcessHandle.current().pid();
+            new DistributedOpenerSearch(Paths.get(args[1])).work(workerId);
+        } else {
+            System.out.println("Usage:");
+            System.out.println("  java DistributedOpenerSearch coordinator dir numWords numCandidates topN numUnits [numLocalWorkers]");
+            System.out.println("  java DistributedOpenerSearch worker dir");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Static helpers for computing the colored feedback of a guess as a single
+ * base 3 pattern code, where the state of letter i is stored in the 3^i digit
+ * (0 for gray, 1 for yellow, 2 for green).
+ *
+ * Words are passed around as packed ints holding five 5 bit letter indeces,
+ * with the letter at index i stored in bits 5i to 5i + 4.
+ */
+public class Feedback {
+    public static final int GRAY = 0;
+    public static final int YELLOW = 1;
+    public static final int GREEN = 2;
+
+    public static final int NUM_PATTERNS = 243;
+    public static final int ALL_GREEN = NUM_PATTERNS - 1;
+
+    // POW3[i] = 3^i, the place value of the letter at index i
+    static final int[] POW3 = {1, 3, 9, 27, 81};
+
+    private Feedback() {}
+
+    /**
+     * Packs a five letter lowercase word into an int
+     * @param word the word
+     * @return the packed word
+     */
+    public static int pack(String word) {
+        int packed = 0;
+        for(int i = 0; i < 5; i++) {
+            packed |= (word.charAt(i) - 'a') << (5 * i);
+        }
+        return packed;
+    }
+
+    /**
+     * Turns a packed word back into a string
+     */
+    public static String unpack(int packed) {
+        char[] word = new char[5];
+        for(int i = 0; i < 5; i++) word[i] = (char) ('a' + letterAt(packed, i));
+        return new String(word);
+    }
+
+    /**
+     * Returns the letter index (0 for 'a' to 25 for 'z') at the given index of a packed word
+     */
+    public static int letterAt(int packed, int index) {
+        return (packed >>> (5 * index)) & 31;
+    }
+
+    public static int compute(WordleWord guess, WordleWord answer) {
+        return compute(guess.getPacked(), answer.getPacked());
+    }
+
+    /**
+     * Computes the pattern code that the guess would be given if the answer were the given word.
+     * Greens are assigned first, then yellows from left to right to the answer letters not yet used.
+     * @param guess the packed guess
+     * @param answer the packed answer
+     * @return the pattern code from 0 to 242
+     */
+    public static int compute(int guess, int answer) {
+        // usedLetters has bit j set once the j-th letter in the answer has been used for a hint
+        int usedLetters = 0;
+        for(int i = 0; i < 5; i++) {
+            if(letterAt(guess, i) == letterAt(answer, i)) usedLetters |= 1 << i;
+        }
+
+        int greens = usedLetters;
+        int code = 0;
+        for(int i = 0; i < 5; i++) {
+            if((greens & (1 << i)) != 0) {
+                code += GREEN * POW3[i];
+                continue;
+            }
+            int c = letterAt(guess, i);
+            for(int j = 0; j < 5; j++) {
+                if((usedLetters & (1 << j)) == 0 && letterAt(answer, j) == c) {
+                    usedLetters |= 1 << j;
+                    code += YELLOW * POW3[i];
+                    break;
+                }
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Returns the state (gray, yellow or green) of the letter at the given index of a pattern code
+     */
+    public static int stateAt(int pattern, int index) {
+        return pattern / POW3[index] % 3;
+    }
+}
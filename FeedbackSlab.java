@@ -0,0 +1,143 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The patterns of a set of guesses against the answers of one small pool, stored as one
+ * contiguous array with a row of answers for each guess, so scoring guesses against the
+ * pool reads memory in order instead of jumping around the whole answer list.
+ *
+ * A child pool's slab is gathered from its parent's instead of recomputed (or from the
+ * nearest ancestor's that was, if the parent's never was): it keeps the ancestor's columns
+ * for the child's answers, and only the rows of guesses that still split the child (a
+ * guess that gives every answer the same pattern can't help there). Slabs
+ * shrink quickly on the way down the tree, so deep in it they fit in L1/L2 cache.
+ */
+public class FeedbackSlab {
+    private final Guess[] guesses;
+    private final int[] packedGuesses;
+    private final int numAnswers;
+    // codes[row * numAnswers + j] = the pattern the row's guess gets for the j-th answer
+    private final byte[] codes;
+    // open addressing table from packed guess to row + 1 (zero means empty)
+    private final int[] tableKeys;
+    private final int[] tableRows;
+
+    private FeedbackSlab(Guess[] guesses, int[] packedGuesses, int numAnswers, byte[] codes) {
+        this.guesses = guesses;
+        this.packedGuesses = packedGuesses;
+        this.numAnswers = numAnswers;
+        this.codes = codes;
+        int capacity = Integer.highestOneBit(Math.max(4, packedGuesses.length * 2) - 1) << 1;
+        tableKeys = new int[capacity];
+        tableRows = new int[capacity];
+        for(int row = 0; row < packedGuesses.length; row++) {
+            int slot = slotOf(packedGuesses[row]);
+            tableKeys[slot] = packedGuesses[row];
+            tableRows[slot] = row + 1;
+        }
+    }
+
+    /**
+     * Computes the slab of the guesses against the answers
+     */
+    public static FeedbackSlab of(Guess[] guesses, List<Answer> answers) {
+        int n = answers.size();
+        int[] packedAnswers = new int[n];
+        for(int j = 0; j < n; j++) packedAnswers[j] = answers.get(j).getPacked();
+        int[] packedGuesses = new int[guesses.length];
+        byte[] codes = new byte[guesses.length * n];
+        for(int row = 0; row < guesses.length; row++) {
+            int packedGuess = guesses[row].getPacked();
+            packedGuesses[row] = packedGuess;
+            int base = row * n;
+            for(int j = 0; j < n; j++) codes[base + j] = (byte) Feedback.compute(packedGuess, packedAnswers[j]);
+        }
+        SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, (long) guesses.length * n);
+        return new FeedbackSlab(guesses.clone(), packedGuesses, n, codes);
+    }
+
+    /**
+     * Gathers the slab of a child pool out of this one
+     * @param members the indeces in this slab of the child's answers, in the child's order
+     * @return the child's slab, with only the guesses that still split the child
+     */
+    public FeedbackSlab gather(int[] members) {
+        int n = members.length;
+        Guess[] childGuesses = new Guess[packedGuesses.length];
+        int[] childPacked = new int[packedGuesses.length];
+        byte[] childCodes = new byte[packedGuesses.length * n];
+        int numRows = 0;
+        for(int row = 0; row < packedGuesses.length; row++) {
+            int base = row * numAnswers;
+            int childBase = numRows * n;
+            byte first = codes[base + members[0]];
+            boolean splits = false;
+            for(int j = 0; j < n; j++) {
+                byte code = codes[base + members[j]];
+                childCodes[childBase + j] = code;
+                if(code != first) splits = true;
+            }
+            if(splits) {
+                childGuesses[numRows] = guesses[row];
+                childPacked[numRows++] = packedGuesses[row];
+            }
+        }
+        return new FeedbackSlab(Arrays.copyOf(childGuesses, numRows), Arrays.copyOf(childPacked, numRows),
+                n, Arrays.copyOf(childCodes, numRows * n));
+    }
+
+    private int slotOf(int packedGuess) {
+        int mask = tableKeys.length - 1;
+        int h = packedGuess * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while(tableRows[slot] != 0 && tableKeys[slot] != packedGuess) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Returns the row of the guess, or -1 if the guess isn't in the slab
+     */
+    public int rowOf(int packedGuess) {
+        return tableRows[slotOf(packedGuess)] - 1;
+    }
+
+    public int numGuesses() {
+        return packedGuesses.length;
+    }
+
+    public int numAnswers() {
+        return numAnswers;
+    }
+
+    public Guess getGuess(int row) {
+        return guesses[row];
+    }
+
+    public int pattern(int row, int answerIdx) {
+        return codes[row * numAnswers + answerIdx] & 0xFF;
+    }
+
+    /**
+     * Returns the patterns the row's guess gets for every answer
+     */
+    public int[] patterns(int row) {
+        int[] ret = new int[numAnswers];
+        int base = row * numAnswers;
+        for(int j = 0; j < numAnswers; j++) ret[j] = codes[base + j] & 0xFF;
+        return ret;
+    }
+
+    /**
+     * Returns the slab's guesses in row order
+     */
+    public Guess[] getGuesses() {
+        return guesses.clone();
+    }
+
+    /**
+     * Returns the size of the slab's codes in bytes
+     */
+    public int sizeInBytes() {
+        return codes.length;
+    }
+}
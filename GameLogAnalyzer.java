@@ -0,0 +1,346 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scores the turns of recorded games for skill and luck.
+ *
+ * The log has one game per line: each guess followed by the hint it got, like
+ *   roate ⬛🟨⬛⬛🟩 lucky 🟩🟩🟩🟩🟩
+ * (hints can also be written like 11213, see SequentialHint). Lines starting with # are skipped,
+ * and games with a word that isn't in the guess list are counted as invalid.
+ *
+ * Each game is replayed by narrowing the answer pool one hint at a time. For every turn,
+ * the answers expected to be left by the guess that was played are compared with the best
+ * guess for the pool (skill), and with the answers that were actually left (luck). The log
+ * is read in chunks that are scored in parallel, so it never has to fit in memory.
+ *
+ * Most games go through the same few pools early on, so the split of a pool by a guess
+ * and the best guess for a pool are cached by the pool's fingerprint. Later pools are
+ * mostly different for every game, so for small pools the best guess is only looked for
+ * among the pool's answers and the guesses the pool's letter frequencies like most
+ * (see AnswerPool.getGuessScore), which is almost always where it is anyway.
+ */
+public class GameLogAnalyzer {
+    public static final int CHUNK_SIZE = 16384;
+    // turns past this one are counted together
+    private static final int MAX_TURN = 10;
+    // the caches are emptied once they get this big so memory stays bounded
+    private static final int MAX_CACHED = 20_000;
+    // pools with at most this many answers only try a few candidates for the best guess
+    private static final int SMALL_POOL = 256;
+    private static final int NUM_SMALL_POOL_CANDIDATES = 64;
+
+    /**
+     * How a guess splits a pool
+     */
+    private static class Split {
+        final long fingerprint;
+        final int packedGuess;
+        // the answers the guess is expected to leave, not counting an answer it solves
+        final double expectedLeft;
+        // groupOfPattern[pattern] = the group of the answers that get the pattern, or -1
+        final int[] groupOfPattern;
+        final List<AnswerPool> children;
+
+        Split(AnswerPool answerPool, Guess guess) {
+            fingerprint = answerPool.getFingerprint();
+            packedGuess = guess.getPacked();
+            int[] patterns = answerPool.getPatterns(guess);
+            Partition partition = Partition.whole(patterns.length).refine(patterns);
+            groupOfPattern = new int[Feedback.NUM_PATTERNS];
+            Arrays.fill(groupOfPattern, -1);
+            boolean solves = false;
+            for(int j = 0; j < patterns.length; j++) {
+                groupOfPattern[patterns[j]] = partition.groupOf(j);
+                if(patterns[j] == Feedback.ALL_GREEN) solves = true;
+            }
+            expectedLeft = (double) (partition.sumOfSquares() - (solves ? 1 : 0)) / patterns.length;
+            children = answerPool.getChildren(partition);
+        }
+    }
+
+    /**
+     * Totals for every turn of every game, which can be merged across threads
+     */
+    public static class Summary {
+        private long numGames;
+        private long numInvalid;
+        private long numWon;
+        private long totalWonGuesses;
+        private final long[] numTurns = new long[MAX_TURN + 1];
+        private final double[] skillLoss = new double[MAX_TURN + 1];
+        private final double[] luck = new double[MAX_TURN + 1];
+        private final double[] answersLeft = new double[MAX_TURN + 1];
+        private final long[] numBest = new long[MAX_TURN + 1];
+
+        void addTurn(int turn, double played, double best, int actual) {
+            int t = Math.min(turn, MAX_TURN);
+            numTurns[t]++;
+            skillLoss[t] += played - best;
+            luck[t] += played - actual;
+            answersLeft[t] += actual;
+            if(played - best < 1e-9) numBest[t]++;
+        }
+
+        void merge(Summary other) {
+            numGames += other.numGames;
+            numInvalid += other.numInvalid;
+            numWon += other.numWon;
+            totalWonGuesses += other.totalWonGuesses;
+            for(int t = 0; t <= MAX_TURN; t++) {
+                numTurns[t] += other.numTurns[t];
+                skillLoss[t] += other.skillLoss[t];
+                luck[t] += other.luck[t];
+                answersLeft[t] += other.answersLeft[t];
+                numBest[t] += other.numBest[t];
+            }
+        }
+
+        public long getNumGames() {
+            return numGames;
+        }
+
+        public long getNumInvalid() {
+            return numInvalid;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%,d games (%,d invalid), %,d won in %.3f guesses on average%n",
+                    numGames, numInvalid, numWon, numWon == 0 ? 0 : (double) totalWonGuesses / numWon));
+            sb.append(String.format("%-6s %12s %14s %12s %12s %10s%n",
+                    "turn", "turns", "answers left", "skill loss", "luck", "best"));
+            for(int t = 1; t <= MAX_TURN; t++) {
+                if(numTurns[t] == 0) continue;
+                sb.append(String.format("%-6s %,12d %14.3f %12.3f %12.3f %9.1f%%%n",
+                        t == MAX_TURN ? t + "+" : Integer.toString(t), numTurns[t],
+                        answersLeft[t] / numTurns[t], skillLoss[t] / numTurns[t],
+                        luck[t] / numTurns[t], 100.0 * numBest[t] / numTurns[t]));
+            }
+            return sb.toString();
+        }
+    }
+
+    private final Guess[] guesses;
+    // the guesses sorted by their packed words, so a played word can be looked up without
+    // making a new Guess for it
+    private final int[] sortedPacked;
+    private final Guess[] sortedGuesses;
+    private final AnswerPool rootPool;
+    private final Map<Long, Split> splits = new ConcurrentHashMap<>();
+    private final Map<Long, Double> bestExpectedLeft = new ConcurrentHashMap<>();
+
+    public GameLogAnalyzer(Guess[] guesses, AnswerPool rootPool) {
+        this.guesses = guesses;
+        this.rootPool = rootPool;
+        sortedGuesses = guesses.clone();
+        Arrays.sort(sortedGuesses, Comparator.comparingInt(Guess::getPacked));
+        sortedPacked = new int[guesses.length];
+        for(int i = 0; i < guesses.length; i++) sortedPacked[i] = sortedGuesses[i].getPacked();
+    }
+
+    /**
+     * Reads and scores a whole log, a chunk of lines at a time
+     * @param log the log file
+     * @return the totals
+     */
+    public Summary analyze(Path log) throws IOException {
+        Summary summary = new Summary();
+        try(BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while((line = reader.readLine()) != null) {
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")) continue;
+                chunk.add(line);
+                if(chunk.size() == CHUNK_SIZE) {
+                    summary.merge(analyzeChunk(chunk));
+                    chunk.clear();
+                }
+            }
+            summary.merge(analyzeChunk(chunk));
+        }
+        return summary;
+    }
+
+    private Summary analyzeChunk(List<String> games) {
+        return SolverMetrics.timed("analyze games",
+                () -> games.parallelStream().collect(Summary::new, this::analyzeGame, Summary::merge));
+    }
+
+    /**
+     * Replays one game, adding its turns to the summary
+     */
+    private void analyzeGame(Summary summary, String game) {
+        summary.numGames++;
+        int[] bounds = getTokenBounds(game);
+        // every guess needs a hint
+        if(bounds.length % 4 != 0) {
+            summary.numInvalid++;
+            return;
+        }
+
+        // check the whole game before counting any of its turns
+        int numTurns = bounds.length / 4;
+        Guess[] turnGuesses = new Guess[numTurns];
+        int[] patterns = new int[numTurns];
+        try {
+            for(int t = 0; t < numTurns; t++) {
+                turnGuesses[t] = parseGuess(game, bounds[4 * t], bounds[4 * t + 1]);
+                patterns[t] = SequentialHint.parsePattern(game, bounds[4 * t + 2], bounds[4 * t + 3]);
+            }
+        } catch(IllegalArgumentException e) {
+            summary.numInvalid++;
+            return;
+        }
+
+        double[] played = new double[numTurns];
+        double[] best = new double[numTurns];
+        int[] actual = new int[numTurns];
+        AnswerPool answerPool = rootPool;
+        for(int t = 0; t < numTurns; t++) {
+            Split split = getSplit(answerPool, turnGuesses[t]);
+            int group = split.groupOfPattern[patterns[t]];
+            // no answer gives this hint, so the game was recorded wrong
+            if(group == -1) {
+                summary.numInvalid++;
+                return;
+            }
+            played[t] = split.expectedLeft;
+            // the candidates for small pools might all be worse than the guess that was played
+            best[t] = Math.min(getBestExpectedLeft(answerPool), played[t]);
+            AnswerPool child = split.children.get(group);
+            actual[t] = patterns[t] == Feedback.ALL_GREEN ? 0 : child.size();
+            answerPool = child;
+        }
+
+        for(int t = 0; t < numTurns; t++) summary.addTurn(t + 1, played[t], best[t], actual[t]);
+        if(patterns[numTurns - 1] == Feedback.ALL_GREEN) {
+            summary.numWon++;
+            summary.totalWonGuesses += numTurns;
+        }
+    }
+
+    /**
+     * Returns where each token of the line starts and ends, one after the other.
+     * Splitting with a regex would compile it for every line
+     */
+    private static int[] getTokenBounds(String line) {
+        int numTokens = 0;
+        for(int k = 0; k < line.length(); k++) {
+            if(!Character.isWhitespace(line.charAt(k)) && (k == 0 || Character.isWhitespace(line.charAt(k - 1)))) numTokens++;
+        }
+        int[] bounds = new int[2 * numTokens];
+        int b = 0;
+        for(int k = 0; k < line.length(); k++) {
+            boolean inToken = !Character.isWhitespace(line.charAt(k));
+            boolean wasInToken = k > 0 && !Character.isWhitespace(line.charAt(k - 1));
+            if(inToken != wasInToken) bounds[b++] = k;
+        }
+        if(b < bounds.length) bounds[b] = line.length();
+        return bounds;
+    }
+
+    /**
+     * Returns the guess for the word played at game.substring(from, to), in either case
+     * @throws IllegalArgumentException if it isn't in the guess list
+     */
+    private Guess parseGuess(String game, int from, int to) {
+        if(to - from != 5) throw new IllegalArgumentException(game);
+        int packed = 0;
+        for(int i = 0; i < 5; i++) {
+            char c = Character.toLowerCase(game.charAt(from + i));
+            if(c < 'a' || c > 'z') throw new IllegalArgumentException(game);
+            packed |= (c - 'a') << (5 * i);
+        }
+        Guess guess = findGuess(packed);
+        if(guess == null) throw new IllegalArgumentException(game);
+        return guess;
+    }
+
+    // the guess for a packed word, or null if it isn't in the guess list
+    private Guess findGuess(int packed) {
+        int i = Arrays.binarySearch(sortedPacked, packed);
+        return i >= 0 ? sortedGuesses[i] : null;
+    }
+
+    private Split getSplit(AnswerPool answerPool, Guess guess) {
+        long key = answerPool.getFingerprint() ^ (guess.getPacked() * 0x9E3779B97F4A7C15L);
+        Split split = splits.get(key);
+        if(split != null && split.fingerprint == answerPool.getFingerprint() && split.packedGuess == guess.getPacked()) {
+            SolverMetrics.increment(SolverMetrics.Counter.CACHE_HITS);
+            return split;
+        }
+        SolverMetrics.increment(SolverMetrics.Counter.CACHE_MISSES);
+        split = new Split(answerPool, guess);
+        if(splits.size() >= MAX_CACHED) splits.clear();
+        splits.put(key, split);
+        return split;
+    }
+
+    /**
+     * Returns the fewest answers any guess is expected to leave in the pool,
+     * not counting an answer it solves
+     */
+    private double getBestExpectedLeft(AnswerPool answerPool) {
+        int n = answerPool.size();
+        if(n <= 2) return (n - 1) / (double) n; // guessing one of the answers is best
+        Double best = bestExpectedLeft.get(answerPool.getFingerprint());
+        if(best != null) return best;
+        if(bestExpectedLeft.size() >= MAX_CACHED) bestExpectedLeft.clear();
+        // so threads reaching the same pool at once (like the root) wait for one scan
+        return bestExpectedLeft.computeIfAbsent(answerPool.getFingerprint(), fingerprint -> scanBestExpectedLeft(answerPool));
+    }
+
+    private double scanBestExpectedLeft(AnswerPool answerPool) {
+        int n = answerPool.size();
+        Set<Integer> poolWords = new HashSet<>();
+        for(Answer answer : answerPool.getAnswers()) poolWords.add(answer.getPacked());
+        Guess[] useful = n <= SMALL_POOL ? getSmallPoolCandidates(answerPool) : answerPool.filterUsefulGuesses(guesses).toArray();
+        long[] sumsOfSquares = answerPool.getGuessSumsOfSquares(useful);
+        long fewest = (long) n * n;
+        for(int i = 0; i < useful.length; i++) {
+            long left = sumsOfSquares[i] - (poolWords.contains(useful[i].getPacked()) ? 1 : 0);
+            fewest = Math.min(fewest, left);
+        }
+        return (double) fewest / n;
+    }
+
+    // the pool's answers plus the guesses with the best letter frequency scores
+    private Guess[] getSmallPoolCandidates(AnswerPool answerPool) {
+        int[] scores = new int[guesses.length];
+        for(int i = 0; i < guesses.length; i++) scores[i] = answerPool.getGuessScore(guesses[i]);
+        List<Guess> candidates = new ArrayList<>();
+        for(Answer answer : answerPool.getAnswers()) {
+            Guess guess = findGuess(answer.getPacked());
+            if(guess != null) candidates.add(guess);
+        }
+        for(int i : Ranking.topK(scores, NUM_SMALL_POOL_CANDIDATES, i -> answerPool.guessIsUseful(guesses[i]))) {
+            candidates.add(guesses[i]);
+        }
+        return candidates.toArray(new Guess[0]);
+    }
+
+    /**
+     * Usage (from the directory with io/): java GameLogAnalyzer logFile [outputFile]
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.out.println("Usage: java GameLogAnalyzer logFile [outputFile]");
+            return;
+        }
+        WordleCalculator calc = new WordleCalculator();
+        GameLogAnalyzer analyzer = new GameLogAnalyzer(calc.getGuesses(), calc.getRootAnswerPool());
+        long start = System.nanoTime();
+        Summary summary = analyzer.analyze(Paths.get(args[0]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        String report = summary + String.format("%.1f seconds (%,.0f games per second)%n",
+                seconds, summary.getNumGames() / seconds);
+        if(args.length >= 2) Files.writeString(Paths.get(args[1]), report);
+        System.out.print(report);
+    }
+}
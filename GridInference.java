@@ -0,0 +1,243 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Works out the day's answer from the hint grids people post without their guesses.
+ *
+ * An answer is consistent with a grid if every row's pattern is one that some allowed
+ * guess gets against it. Which patterns some guess can get is precomputed once for every
+ * answer, as a 243 bit set (four longs) per answer. The same bits are also kept by pattern,
+ * as a set of the answers the pattern is possible for, so the answers consistent with a
+ * grid are just the intersection of one set for each of its rows.
+ *
+ * The grids file is read in chunks that are processed in parallel. Rows are written like
+ * SequentialHint.toString (or with 1/2/3), one or more to a line, and grids are separated
+ * by lines without any rows, like blank lines or a header such as "Wordle 1,234 4/6".
+ */
+public class GridInference {
+    public static final int CHUNK_SIZE = 16384;
+    private static final int PATTERN_WORDS = (Feedback.NUM_PATTERNS + 63) / 64;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Totals over a set of grids, which can be merged across threads
+     */
+    public static class Summary {
+        private long numGrids;
+        // grids that no answer is consistent with (like ones from a different word list)
+        private long numInvalid;
+        // the answers consistent with every valid grid
+        private final long[] intersection;
+        // support[a] = the number of grids the a-th answer is consistent with
+        private final int[] support;
+
+        Summary(int numAnswers) {
+            intersection = new long[(numAnswers + 63) / 64];
+            Arrays.fill(intersection, -1L);
+            if(numAnswers % 64 != 0) intersection[intersection.length - 1] = (1L << numAnswers) - 1;
+            support = new int[numAnswers];
+        }
+
+        void merge(Summary other) {
+            numGrids += other.numGrids;
+            numInvalid += other.numInvalid;
+            for(int w = 0; w < intersection.length; w++) intersection[w] &= other.intersection[w];
+            for(int a = 0; a < support.length; a++) support[a] += other.support[a];
+        }
+
+        public long getNumGrids() {
+            return numGrids;
+        }
+
+        public long getNumInvalid() {
+            return numInvalid;
+        }
+
+        public int getSupport(int answerIdx) {
+            return support[answerIdx];
+        }
+
+        public boolean isInIntersection(int answerIdx) {
+            return (intersection[answerIdx >>> 6] & (1L << answerIdx)) != 0;
+        }
+    }
+
+    private final List<Answer> answers;
+    // possiblePatterns[a * PATTERN_WORDS + w] has bit p of the w-th long set if some guess
+    // gets pattern 64 * w + p against the a-th answer
+    private final long[] possiblePatterns;
+    // the same bits by pattern: answersWithPattern[p * answerWords + w] has bit a of the w-th
+    // long set if some guess gets pattern p against answer 64 * w + a
+    private final long[] answersWithPattern;
+    private final int answerWords;
+
+    public GridInference(Guess[] guesses, List<Answer> answers) {
+        this.answers = answers;
+        int numAnswers = answers.size();
+        int[] packedGuesses = new int[guesses.length];
+        for(int i = 0; i < guesses.length; i++) packedGuesses[i] = guesses[i].getPacked();
+
+        possiblePatterns = new long[numAnswers * PATTERN_WORDS];
+        SolverMetrics.timed("possible patterns", () -> IntStream.range(0, numAnswers).parallel().forEach(a -> {
+            int packedAnswer = answers.get(a).getPacked();
+            int base = a * PATTERN_WORDS;
+            for(int packedGuess : packedGuesses) {
+                int pattern = Feedback.compute(packedGuess, packedAnswer);
+                possiblePatterns[base + (pattern >>> 6)] |= 1L << pattern;
+            }
+        }));
+        SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, (long) numAnswers * guesses.length);
+
+        answerWords = (numAnswers + 63) / 64;
+        answersWithPattern = new long[Feedback.NUM_PATTERNS * answerWords];
+        for(int a = 0; a < numAnswers; a++) {
+            for(int pattern = 0; pattern < Feedback.NUM_PATTERNS; pattern++) {
+                if(patternIsPossible(a, pattern)) answersWithPattern[pattern * answerWords + (a >>> 6)] |= 1L << a;
+            }
+        }
+    }
+
+    /**
+     * Returns whether some guess gets the pattern against the answer
+     */
+    public boolean patternIsPossible(int answerIdx, int pattern) {
+        return (possiblePatterns[answerIdx * PATTERN_WORDS + (pattern >>> 6)] & (1L << pattern)) != 0;
+    }
+
+    /**
+     * Returns the answers consistent with a grid, as a bit set over the answer list
+     * @param patterns the pattern of each row
+     */
+    public long[] getConsistentAnswers(int[] patterns) {
+        long[] ret = new long[answerWords];
+        Arrays.fill(ret, -1L);
+        for(int pattern : patterns) {
+            int base = pattern * answerWords;
+            for(int w = 0; w < answerWords; w++) ret[w] &= answersWithPattern[base + w];
+        }
+        // clear the bits past the end of the answer list
+        if(answers.size() % 64 != 0) ret[answerWords - 1] &= (1L << answers.size()) - 1;
+        return ret;
+    }
+
+    /**
+     * Returns the answers in a bit set from getConsistentAnswers
+     */
+    public List<Answer> toAnswers(long[] bits) {
+        List<Answer> ret = new ArrayList<>();
+        for(int w = 0; w < bits.length; w++) {
+            for(long word = bits[w]; word != 0; word &= word - 1) {
+                ret.add(answers.get(64 * w + Long.numberOfTrailingZeros(word)));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Reads and intersects every grid in a file, a chunk of grids at a time
+     */
+    public Summary analyze(Path gridsFile) throws IOException {
+        Summary summary = new Summary(answers.size());
+        try(BufferedReader reader = Files.newBufferedReader(gridsFile, StandardCharsets.UTF_8)) {
+            List<int[]> chunk = new ArrayList<>(CHUNK_SIZE);
+            List<Integer> rows = new ArrayList<>();
+            String line;
+            while((line = reader.readLine()) != null) {
+                int numRows = rows.size();
+                for(String token : WHITESPACE.split(line.trim())) {
+                    // skip the tokens that obviously aren't rows without throwing
+                    if(token.isEmpty() || !isHint(token.codePointAt(0))) continue;
+                    try {
+                        rows.add(SequentialHint.parsePattern(token));
+                    } catch(IllegalArgumentException e) {
+                        // not a row, like the number in a header
+                    }
+                }
+                if(rows.size() > numRows || rows.isEmpty()) continue;
+
+                chunk.add(rows.stream().mapToInt(Integer::intValue).toArray());
+                rows.clear();
+                if(chunk.size() == CHUNK_SIZE) {
+                    summary.merge(analyzeChunk(chunk));
+                    chunk.clear();
+                }
+            }
+            if(!rows.isEmpty()) chunk.add(rows.stream().mapToInt(Integer::intValue).toArray());
+            summary.merge(analyzeChunk(chunk));
+        }
+        return summary;
+    }
+
+    private static boolean isHint(int codePoint) {
+        return (codePoint >= '1' && codePoint <= '3') || codePoint == 0x2B1B || codePoint == 0x2B1C
+                || codePoint == 0x1F7E8 || codePoint == 0x1F7E9;
+    }
+
+    private Summary analyzeChunk(List<int[]> grids) {
+        return SolverMetrics.timed("intersect grids",
+                () -> grids.parallelStream().collect(() -> new Summary(answers.size()), this::addGrid, Summary::merge));
+    }
+
+    private void addGrid(Summary summary, int[] grid) {
+        summary.numGrids++;
+        long[] consistent = getConsistentAnswers(grid);
+        boolean any = false;
+        for(int w = 0; w < consistent.length; w++) {
+            for(long word = consistent[w]; word != 0; word &= word - 1) {
+                summary.support[64 * w + Long.numberOfTrailingZeros(word)]++;
+                any = true;
+            }
+        }
+        // a grid nothing is consistent with would empty the intersection, so it's left out
+        if(!any) {
+            summary.numInvalid++;
+            return;
+        }
+        for(int w = 0; w < consistent.length; w++) summary.intersection[w] &= consistent[w];
+    }
+
+    /**
+     * Returns a report of the answers consistent with every grid, and the answers
+     * consistent with the most grids in case a few grids were mistyped
+     */
+    public String report(Summary summary, int numTop) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%,d grids (%,d consistent with no answer)%n", summary.numGrids, summary.numInvalid));
+        List<Answer> intersection = toAnswers(summary.intersection);
+        sb.append(String.format("%,d answers consistent with every grid: %s%n", intersection.size(),
+                intersection.size() <= 20 ? intersection : intersection.subList(0, 20) + "..."));
+        int[] top = Ranking.topK(summary.support, numTop);
+        sb.append("Answers consistent with the most grids:\n");
+        for(int a : top) {
+            sb.append(String.format("%s %,d (%.2f%%)%n", answers.get(a), summary.support[a],
+                    summary.numGrids == 0 ? 0 : 100.0 * summary.support[a] / summary.numGrids));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Usage (from the directory with io/): java GridInference gridsFile [outputFile]
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.out.println("Usage: java GridInference gridsFile [outputFile]");
+            return;
+        }
+        WordleCalculator calc = new WordleCalculator();
+        long start = System.nanoTime();
+        GridInference inference = new GridInference(calc.getGuesses(), calc.getRootAnswerPool().getAnswers());
+        double setupSeconds = (System.nanoTime() - start) / 1e9;
+        start = System.nanoTime();
+        Summary summary = inference.analyze(Paths.get(args[0]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        String report = inference.report(summary, 10) + String.format(
+                "%.1f seconds to precompute, %.1f seconds for the grids (%,.0f grids per second)%n",
+                setupSeconds, seconds, summary.getNumGrids() / seconds);
+        if(args.length >= 2) Files.writeString(Paths.get(args[1]), report);
+        System.out.print(report);
+    }
+}
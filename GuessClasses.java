@@ -0,0 +1,197 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Groups guesses that split an answer pool in exactly the same way, so searches
+ * only have to try one representative guess from each class.
+ *
+ * Two guesses are in the same class if they put the same answers together, even if
+ * the patterns themselves differ, and if they are both (or both not) in the pool. Each
+ * guess's patterns are relabeled in the order they first appear (with all greens kept
+ * separate) so that equal partitions give equal label vectors, which are hashed and
+ * then compared exactly.
+ */
+public class GuessClasses {
+    // label for the all green pattern, which is never given out in first appearance order
+    private static final byte SOLVED_LABEL = (byte) Feedback.NUM_PATTERNS;
+
+    private final Guess[] guesses;
+    // indeces of the first guess in each class
+    private final int[] representatives;
+    // classOf[i] = the class of the i-th guess
+    private final int[] classOf;
+    private final int[] classSizes;
+    // sumsOfSquares[c] = sum of the squared group sizes of the c-th class's partition
+    private final int[] sumsOfSquares;
+    private final int[] numGroups;
+    // isAnswer[c] = the guesses in the c-th class are in the pool
+    private final boolean[] isAnswer;
+
+    private GuessClasses(Guess[] guesses, int[] representatives, int[] classOf,
+            int[] classSizes, int[] sumsOfSquares, int[] numGroups, boolean[] isAnswer) {
+        this.guesses = guesses;
+        this.representatives = representatives;
+        this.classOf = classOf;
+        this.classSizes = classSizes;
+        this.sumsOfSquares = sumsOfSquares;
+        this.numGroups = numGroups;
+        this.isAnswer = isAnswer;
+    }
+
+    /**
+     * Splits the guesses into classes for the given pool
+     * @param answerPool the pool
+     * @param guesses the guesses
+     * @return the classes
+     */
+    public static GuessClasses of(AnswerPool answerPool, Guess[] guesses) {
+        int n = answerPool.size();
+        int[] packedAnswers = new int[n];
+        for(int j = 0; j < n; j++) packedAnswers[j] = answerPool.getAnswers().get(j).getPacked();
+        // read the patterns out of the pool's slab if it has one
+        FeedbackSlab slab = answerPool.getSlab();
+
+        // labels[i] = the relabeled pattern vector of the i-th guess
+        byte[][] labels = new byte[guesses.length][];
+        long[] hashes = new long[guesses.length];
+        int[] guessSumsOfSquares = new int[guesses.length];
+        int[] guessNumGroups = new int[guesses.length];
+        // work on blocks of guesses so the scratch arrays are only allocated once per block,
+        // which matters for small pools where filling them in costs more than the patterns
+        int numBlocks = (guesses.length + TiledScorer.GUESS_BLOCK - 1) / TiledScorer.GUESS_BLOCK;
+        IntStream.range(0, numBlocks).parallel().forEach(block -> {
+            byte[] patternLabels = new byte[Feedback.NUM_PATTERNS];
+            int[] labelCounts = new int[Feedback.NUM_PATTERNS + 1];
+            int[] labelPatterns = new int[Feedback.NUM_PATTERNS];
+            int to = Math.min((block + 1) * TiledScorer.GUESS_BLOCK, guesses.length);
+            for(int i = block * TiledScorer.GUESS_BLOCK; i < to; i++) {
+                byte[] vector = new byte[n];
+                int numLabels = 0;
+                int sumOfSquares = 0;
+                long hash = 0xCBF29CE484222325L;
+                int packedGuess = guesses[i].getPacked();
+                int row = slab == null ? -1 : slab.rowOf(packedGuess);
+                for(int j = 0; j < n; j++) {
+                    int pattern = row >= 0 ? slab.pattern(row, j) : Feedback.compute(packedGuess, packedAnswers[j]);
+                    byte label;
+                    if(pattern == Feedback.ALL_GREEN) {
+                        label = SOLVED_LABEL;
+                    } else {
+                        // labels are stored plus one so zero means unlabeled
+                        if(patternLabels[pattern] == 0) {
+                            labelPatterns[numLabels] = pattern;
+                            patternLabels[pattern] = (byte) ++numLabels;
+                        }
+                        label = (byte) (patternLabels[pattern] - 1);
+                    }
+                    vector[j] = label;
+                    sumOfSquares += 2 * labelCounts[label & 0xFF]++ + 1;
+                    hash = (hash ^ (label & 0xFF)) * 0x100000001B3L;
+                }
+                if(row < 0) SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, n);
+                labels[i] = vector;
+                hashes[i] = hash;
+                guessSumsOfSquares[i] = sumOfSquares;
+                guessNumGroups[i] = numLabels + (labelCounts[SOLVED_LABEL & 0xFF] > 0 ? 1 : 0);
+
+                // clear just the entries this guess used for the next one
+                for(int label = 0; label < numLabels; label++) {
+                    patternLabels[labelPatterns[label]] = 0;
+                    labelCounts[label] = 0;
+                }
+                labelCounts[SOLVED_LABEL & 0xFF] = 0;
+            }
+        });
+
+        // group by hash, checking the vectors exactly in case of collisions
+        Map<Long, List<Integer>> classesByHash = new HashMap<>();
+        int[] classOf = new int[guesses.length];
+        List<Integer> representatives = new ArrayList<>();
+        for(int i = 0; i < guesses.length; i++) {
+            List<Integer> candidates = classesByHash.computeIfAbsent(hashes[i], h -> new ArrayList<>(1));
+            int match = -1;
+            for(int c : candidates) {
+                if(Arrays.equals(labels[representatives.get(c)], labels[i])) {
+                    match = c;
+                    break;
+                }
+            }
+            if(match == -1) {
+                match = representatives.size();
+                representatives.add(i);
+                candidates.add(match);
+            }
+            classOf[i] = match;
+        }
+
+        int numClasses = representatives.size();
+        int[] reps = new int[numClasses];
+        int[] classSizes = new int[numClasses];
+        int[] sumsOfSquares = new int[numClasses];
+        int[] numGroups = new int[numClasses];
+        boolean[] isAnswer = new boolean[numClasses];
+        for(int c = 0; c < numClasses; c++) {
+            reps[c] = representatives.get(c);
+            sumsOfSquares[c] = guessSumsOfSquares[reps[c]];
+            numGroups[c] = guessNumGroups[reps[c]];
+            for(byte label : labels[reps[c]]) {
+                if(label == SOLVED_LABEL) isAnswer[c] = true;
+            }
+        }
+        for(int c : classOf) classSizes[c]++;
+        return new GuessClasses(guesses, reps, classOf, classSizes, sumsOfSquares, numGroups, isAnswer);
+    }
+
+    public int numClasses() {
+        return representatives.length;
+    }
+
+    /**
+     * Returns the representative guess of a class
+     */
+    public Guess getRepresentative(int c) {
+        return guesses[representatives[c]];
+    }
+
+    /**
+     * Returns the index (in the guesses this was built from) of the representative of a class
+     */
+    public int getRepresentativeIndex(int c) {
+        return representatives[c];
+    }
+
+    public List<Guess> getRepresentatives() {
+        List<Guess> ret = new ArrayList<>(representatives.length);
+        for(int i : representatives) ret.add(guesses[i]);
+        return ret;
+    }
+
+    public int classOf(int guessIdx) {
+        return classOf[guessIdx];
+    }
+
+    public int classSize(int c) {
+        return classSizes[c];
+    }
+
+    /**
+     * Returns the sum of the squared group sizes that the guesses in a class split the pool into
+     */
+    public int getSumOfSquares(int c) {
+        return sumsOfSquares[c];
+    }
+
+    /**
+     * Returns the number of groups the guesses in a class split the pool into
+     */
+    public int getNumGroups(int c) {
+        return numGroups[c];
+    }
+
+    /**
+     * Returns whether the guesses in a class are possible answers in the pool
+     */
+    public boolean isAnswer(int c) {
+        return isAnswer[c];
+    }
+}
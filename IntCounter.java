@@ -0,0 +1,68 @@
+import java.util.Arrays;
+
+/**
+ * Counts occurences of int keys using open addressing, without boxing.
+ * Clearing only touches the slots that were used, so one counter can be
+ * reused across many candidates cheaply.
+ */
+public class IntCounter {
+    private int[] keys;
+    private int[] counts; // a count of zero marks an empty slot
+    private int[] usedSlots;
+    private int numUsed;
+    private int mask;
+
+    /**
+     * @param maxKeys the most distinct keys that will be counted between clears
+     */
+    public IntCounter(int maxKeys) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxKeys) * 2 - 1) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        usedSlots = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds one to the count of a key
+     * @param key the key
+     * @return the new count of the key
+     */
+    public int increment(int key) {
+        int hash = key * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while(counts[slot] != 0) {
+            if(keys[slot] == key) return ++counts[slot];
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        usedSlots[numUsed++] = slot;
+        return 1;
+    }
+
+    /**
+     * Returns the number of distinct keys counted since the last clear
+     */
+    public int size() {
+        return numUsed;
+    }
+
+    /**
+     * Returns the counts of all distinct keys in no particular order
+     */
+    public int[] getCounts() {
+        int[] ret = new int[numUsed];
+        for(int i = 0; i < numUsed; i++) ret[i] = counts[usedSlots[i]];
+        return ret;
+    }
+
+    public void clear() {
+        if(numUsed > counts.length / 4) {
+            Arrays.fill(counts, 0);
+        } else {
+            for(int i = 0; i < numUsed; i++) counts[usedSlots[i]] = 0;
+        }
+        numUsed = 0;
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.Arrays;
+
+/**
+ * Maps long keys to lists of int values without boxing. Every list is stored
+ * as a chain through two shared arrays, so adding a value never allocates
+ * unless an array has to grow.
+ */
+public class LongListMap {
+    private long[] keys;
+    private int[] sizes; // a size of zero marks an empty slot
+    private int[] heads; // index of the last value added for each slot
+    private int mask;
+
+    private int[] values;
+    private int[] next; // next[i] = index of the value added before values[i] to the same list
+    private int numValues;
+
+    private int[] usedSlots;
+    private int numKeys;
+
+    /**
+     * @param expectedValues the number of values expected to be added, which bounds the number of keys
+     */
+    public LongListMap(int expectedValues) {
+        int capacity = Integer.highestOneBit(Math.max(2, expectedValues) * 2 - 1) << 1;
+        keys = new long[capacity];
+        sizes = new int[capacity];
+        heads = new int[capacity];
+        usedSlots = new int[capacity];
+        mask = capacity - 1;
+        values = new int[Math.max(1, expectedValues)];
+        next = new int[values.length];
+    }
+
+    public void add(long key, int value) {
+        if(numKeys * 2 >= keys.length) grow();
+        int slot = slotOf(key);
+        if(sizes[slot] == 0) {
+            keys[slot] = key;
+            usedSlots[numKeys++] = slot;
+            heads[slot] = -1;
+        }
+        if(numValues == values.length) {
+            values = Arrays.copyOf(values, numValues * 2);
+            next = Arrays.copyOf(next, numValues * 2);
+        }
+        values[numValues] = value;
+        next[numValues] = heads[slot];
+        heads[slot] = numValues++;
+        sizes[slot]++;
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while(sizes[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldSizes = sizes;
+        int[] oldHeads = heads;
+        int[] oldUsedSlots = usedSlots;
+
+        keys = new long[oldKeys.length * 2];
+        sizes = new int[keys.length];
+        heads = new int[keys.length];
+        usedSlots = new int[keys.length];
+        mask = keys.length - 1;
+        for(int i = 0; i < numKeys; i++) {
+            int oldSlot = oldUsedSlots[i];
+            int slot = slotOf(oldKeys[oldSlot]);
+            keys[slot] = oldKeys[oldSlot];
+            sizes[slot] = oldSizes[oldSlot];
+            heads[slot] = oldHeads[oldSlot];
+            usedSlots[i] = slot;
+        }
+    }
+
+    /**
+     * Returns the number of distinct keys, which are numbered from 0 in the order they were added
+     */
+    public int numKeys() {
+        return numKeys;
+    }
+
+    public long keyAt(int i) {
+        return keys[usedSlots[i]];
+    }
+
+    public int sizeAt(int i) {
+        return sizes[usedSlots[i]];
+    }
+
+    /**
+     * Returns the values of the i-th key in the order they were added
+     */
+    public int[] valuesAt(int i) {
+        int slot = usedSlots[i];
+        int[] ret = new int[sizes[slot]];
+        int index = heads[slot];
+        for(int j = ret.length - 1; j >= 0; j--) {
+            ret[j] = values[index];
+            index = next[index];
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,162 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * A game of several boards at once (like Dordle, Quordle or Octordle), where every guess
+ * is played on every board that isn't solved yet and each board has its own answer.
+ *
+ * Guesses are scored against all boards in one pass. The boards' answers are merged into
+ * one list without duplicates (at the start every board has every answer, so this saves
+ * most of the work), each guess's pattern is computed once per merged answer, and then
+ * each board just counts the patterns of its own answers.
+ */
+public class MultiBoard {
+    // guesses are scored in blocks of this many per task, each with its own scratch arrays
+    private static final int GUESS_BLOCK = 64;
+
+    private final List<AnswerPool> boards;
+    private final boolean[] solved;
+
+    /**
+     * Starts a game where every board could be any of the answers
+     */
+    public MultiBoard(List<Answer> answers, int numBoards) {
+        this(Collections.nCopies(numBoards, new AnswerPool(answers)));
+    }
+
+    public MultiBoard(List<AnswerPool> boards) {
+        this.boards = new ArrayList<>(boards);
+        this.solved = new boolean[boards.size()];
+    }
+
+    public int numBoards() {
+        return boards.size();
+    }
+
+    public AnswerPool getBoard(int board) {
+        return boards.get(board);
+    }
+
+    public boolean isSolved(int board) {
+        return solved[board];
+    }
+
+    public int numUnsolved() {
+        int count = 0;
+        for(boolean isSolved : solved) {
+            if(!isSolved) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Scores each guess by the total number of answers it's expected to leave across the
+     * unsolved boards, not counting a board it would solve. Lower is better.
+     * @param guesses the guesses
+     * @return the score of each guess
+     */
+    public double[] getJointScores(Guess[] guesses) {
+        // merge the unsolved boards' answers, with boardAnswers[b] indexing into the merged list
+        Map<Integer, Integer> mergedIndex = new HashMap<>();
+        List<Integer> merged = new ArrayList<>();
+        int[][] boardAnswers = new int[boards.size()][];
+        for(int b = 0; b < boards.size(); b++) {
+            if(solved[b]) continue;
+            List<Answer> answers = boards.get(b).getAnswers();
+            boardAnswers[b] = new int[answers.size()];
+            for(int j = 0; j < answers.size(); j++) {
+                int packed = answers.get(j).getPacked();
+                Integer index = mergedIndex.get(packed);
+                if(index == null) {
+                    index = merged.size();
+                    mergedIndex.put(packed, index);
+                    merged.add(packed);
+                }
+                boardAnswers[b][j] = index;
+            }
+        }
+        int[] packedAnswers = new int[merged.size()];
+        for(int j = 0; j < packedAnswers.length; j++) packedAnswers[j] = merged.get(j);
+
+        double[] scores = new double[guesses.length];
+        int numBlocks = (guesses.length + GUESS_BLOCK - 1) / GUESS_BLOCK;
+        IntStream.range(0, numBlocks).parallel().forEach(block -> {
+            byte[] patterns = new byte[packedAnswers.length];
+            int[] counts = new int[Feedback.NUM_PATTERNS];
+            int to = Math.min((block + 1) * GUESS_BLOCK, guesses.length);
+            for(int i = block * GUESS_BLOCK; i < to; i++) {
+                int packedGuess = guesses[i].getPacked();
+                for(int j = 0; j < packedAnswers.length; j++) {
+                    patterns[j] = (byte) Feedback.compute(packedGuess, packedAnswers[j]);
+                }
+
+                double score = 0;
+                for(int[] answers : boardAnswers) {
+                    if(answers == null) continue;
+                    Arrays.fill(counts, 0);
+                    long sumOfSquares = 0;
+                    for(int j : answers) sumOfSquares += 2 * counts[patterns[j] & 0xFF]++ + 1;
+                    // the answer that matches the guess is solved, so it doesn't count as left
+                    sumOfSquares -= counts[Feedback.ALL_GREEN];
+                    score += (double) sumOfSquares / answers.length;
+                }
+                scores[i] = score;
+            }
+            SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, (long) (to - block * GUESS_BLOCK) * packedAnswers.length);
+        });
+        return scores;
+    }
+
+    /**
+     * Ranks the guesses by their joint score, preferring guesses that could solve a board on ties
+     * @param guesses the guesses
+     * @param n the number of guesses to return
+     * @return the best guesses, best first
+     */
+    public List<Guess> rankGuesses(Guess[] guesses, int n) {
+        double[] scores = SolverMetrics.timed("multi-board scoring", () -> getJointScores(guesses));
+        Set<Integer> unsolvedAnswers = new HashSet<>();
+        for(int b = 0; b < boards.size(); b++) {
+            if(solved[b]) continue;
+            for(Answer answer : boards.get(b).getAnswers()) unsolvedAnswers.add(answer.getPacked());
+        }
+        // the tie breaker is far smaller than any real difference in scores
+        double[] ranks = new double[scores.length];
+        for(int i = 0; i < scores.length; i++) {
+            ranks[i] = -scores[i] + (unsolvedAnswers.contains(guesses[i].getPacked()) ? 1e-9 : 0);
+        }
+        List<Guess> ret = new ArrayList<>(n);
+        for(int i : Ranking.topK(ranks, n, i -> true)) ret.add(guesses[i]);
+        return ret;
+    }
+
+    /**
+     * Narrows every unsolved board down to the answers that would have given it its pattern
+     * @param guess the guess that was played
+     * @param patterns the pattern each board gave (ignored for solved boards)
+     */
+    public void addHint(Guess guess, int... patterns) {
+        if(patterns.length != boards.size()) {
+            throw new IllegalArgumentException("Expected " + boards.size() + " patterns but got " + patterns.length);
+        }
+        for(int b = 0; b < boards.size(); b++) {
+            if(solved[b]) continue;
+            if(patterns[b] == Feedback.ALL_GREEN) solved[b] = true;
+
+            AnswerPool board = boards.get(b);
+            int[] boardPatterns = board.getPatterns(guess);
+            Partition partition = Partition.whole(board.size()).refine(boardPatterns);
+            int group = -1;
+            for(int j = 0; j < boardPatterns.length; j++) {
+                if(boardPatterns[j] == patterns[b]) {
+                    group = partition.groupOf(j);
+                    break;
+                }
+            }
+            if(group == -1) {
+                throw new IllegalArgumentException("No answer on board " + b + " gives that pattern");
+            }
+            boards.set(b, board.getChildren(partition).get(group));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.Arrays;
+
+/**
+ * An opening of one or more guesses along with how well it splits up the answers
+ */
+public class OpenerResult implements Comparable<OpenerResult> {
+    private Guess[] guesses;
+    // sum of the squared sizes of the groups of answers given the same hints
+    private long sumOfSquares;
+    private int numAnswers;
+
+    public OpenerResult(Guess[] guesses, long sumOfSquares, int numAnswers) {
+        this.guesses = guesses;
+        this.sumOfSquares = sumOfSquares;
+        this.numAnswers = numAnswers;
+    }
+
+    public Guess[] getGuesses() {
+        return guesses;
+    }
+
+    public long getSumOfSquares() {
+        return sumOfSquares;
+    }
+
+    /**
+     * Returns the average number of answers left after the opening
+     */
+    public double getAverageRemaining() {
+        return (double) sumOfSquares / numAnswers;
+    }
+
+    /**
+     * Returns the total eliminations over all answers, as in AnswerPool.getGuessesTotalElims
+     */
+    public long getEliminations() {
+        return (long) numAnswers * numAnswers - sumOfSquares;
+    }
+
+    /**
+     * Better openings come first
+     */
+    @Override
+    public int compareTo(OpenerResult o) {
+        return Long.compare(this.sumOfSquares, o.sumOfSquares);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("The opening %s leaves an average of %,.2f words (%d eliminations)",
+                Arrays.toString(guesses), getAverageRemaining(), getEliminations());
+    }
+}
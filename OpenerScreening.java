@@ -0,0 +1,174 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Screens every guess as an opener by estimating the average number of answers it
+ * leaves from a random sample of the answers, so that only the openers that are
+ * statistically competitive have to be evaluated exactly.
+ *
+ * The average number left is 1 + (N - 1) * p, where p is the chance that two different
+ * answers get the same pattern. For a sample of m answers, p is estimated by the fraction
+ * of pairs in the sample that share a pattern. Every round uses the same nested sample for
+ * every opener (so their errors are correlated and comparisons are fairer), keeps every
+ * opener whose confidence interval overlaps the incumbent's (the one with the best mean),
+ * keeps the better half of the rest, and doubles the sample (successive halving). So an
+ * opener that could still be the best is never dropped for an unlucky sample, and the rest
+ * are dropped gradually since intervals from small samples aren't exact either.
+ */
+public class OpenerScreening {
+
+    /**
+     * An opener's estimated average number of answers left, with a confidence interval
+     */
+    public static class Estimate implements Comparable<Estimate> {
+        private final Guess guess;
+        private final double mean;
+        private final double low;
+        private final double high;
+        private final int sampleSize;
+
+        private Estimate(Guess guess, double mean, double low, double high, int sampleSize) {
+            this.guess = guess;
+            this.mean = mean;
+            this.low = low;
+            this.high = high;
+            this.sampleSize = sampleSize;
+        }
+
+        public Guess getGuess() {
+            return guess;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getLow() {
+            return low;
+        }
+
+        public double getHigh() {
+            return high;
+        }
+
+        public int getSampleSize() {
+            return sampleSize;
+        }
+
+        /**
+         * Returns true if the estimate used every answer, i.e. it's exact
+         */
+        public boolean isExact() {
+            return low == high;
+        }
+
+        @Override
+        public int compareTo(Estimate o) {
+            return Double.compare(this.mean, o.mean);
+        }
+
+        @Override
+        public String toString() {
+            if(isExact()) {
+                return String.format("%s leaves an average of %,.2f words", guess, mean);
+            }
+            return String.format("%s leaves an average of %,.2f words (%,.2f to %,.2f from %d answers)",
+                    guess, mean, low, high, sampleSize);
+        }
+    }
+
+    private final Guess[] guesses;
+    // the answers in a random order, so the first m are a random sample of size m
+    private final int[] shuffledAnswers;
+
+    public OpenerScreening(Guess[] guesses, Answer[] answers, long seed) {
+        this.guesses = guesses;
+        List<Integer> order = new ArrayList<>(answers.length);
+        for(Answer answer : answers) order.add(answer.getPacked());
+        Collections.shuffle(order, new Random(seed));
+        shuffledAnswers = new int[answers.length];
+        for(int j = 0; j < answers.length; j++) shuffledAnswers[j] = order.get(j);
+    }
+
+    /**
+     * Screens all of the guesses
+     * @param initialSample the number of answers sampled in the first round
+     * @param numExact stop sampling once this few openers are left, then evaluate them exactly
+     * (or evaluate every survivor exactly once the sample would be all of the answers)
+     * @param z the number of standard errors on each side of the confidence intervals (1.96 for 95%)
+     * @return the estimates of the openers that survived, best first
+     */
+    public List<Estimate> screen(int initialSample, int numExact, double z) {
+        int numAnswers = shuffledAnswers.length;
+        int[] survivors = IntStream.range(0, guesses.length).toArray();
+        int sampleSize = Math.min(Math.max(2, initialSample), numAnswers);
+        while(true) {
+            int m = survivors.length <= numExact ? numAnswers : sampleSize;
+            int[] current = survivors;
+            Estimate[] estimates = new Estimate[current.length];
+            IntStream.range(0, current.length).parallel()
+                    .forEach(i -> estimates[i] = estimate(guesses[current[i]], m, z));
+            if(m == numAnswers) {
+                Arrays.sort(estimates);
+                return Arrays.asList(estimates);
+            }
+
+            // keep every opener that could still be better than the incumbent, and halve the rest
+            Estimate incumbent = Collections.min(Arrays.asList(estimates));
+            List<Integer> competitive = new ArrayList<>();
+            List<Integer> rest = new ArrayList<>();
+            for(int i = 0; i < estimates.length; i++) {
+                if(estimates[i].low <= incumbent.high) competitive.add(i);
+                else rest.add(i);
+            }
+            rest.sort(Comparator.comparingDouble(i -> estimates[i].mean));
+            int numRestKept = Math.max((rest.size() + 1) / 2, numExact - competitive.size());
+            competitive.addAll(rest.subList(0, Math.min(rest.size(), Math.max(0, numRestKept))));
+
+            survivors = new int[competitive.size()];
+            for(int i = 0; i < survivors.length; i++) survivors[i] = current[competitive.get(i)];
+            sampleSize = Math.min(2 * sampleSize, numAnswers);
+        }
+    }
+
+    /**
+     * Estimates the average number of answers the guess leaves from the first m shuffled answers
+     */
+    private Estimate estimate(Guess guess, int m, double z) {
+        int numAnswers = shuffledAnswers.length;
+        int packedGuess = guess.getPacked();
+        int[] patterns = new int[m];
+        int[] counts = new int[Feedback.NUM_PATTERNS];
+        for(int j = 0; j < m; j++) {
+            patterns[j] = Feedback.compute(packedGuess, shuffledAnswers[j]);
+            counts[patterns[j]]++;
+        }
+        SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, m);
+        if(m == numAnswers) {
+            long sumOfSquares = 0;
+            for(int count : counts) sumOfSquares += (long) count * count;
+            double mean = (double) sumOfSquares / numAnswers;
+            return new Estimate(guess, mean, mean, mean, m);
+        }
+
+        // x_j = the fraction of the other sampled answers that share the j-th answer's
+        // pattern, whose mean is the fraction of pairs that share a pattern
+        double sum = 0;
+        double sumOfSquares = 0;
+        for(int j = 0; j < m; j++) {
+            double x = (counts[patterns[j]] - 1) / (double) (m - 1);
+            sum += x;
+            sumOfSquares += x * x;
+        }
+        double p = sum / m;
+        double variance = Math.max(0, sumOfSquares / m - p * p);
+
+        // the standard error of a pairwise average is about twice that of a plain average,
+        // shrunk by the finite population correction since the sample is without replacement
+        double standardError = 2 * Math.sqrt(variance / m)
+                * Math.sqrt((double) (numAnswers - m) / (numAnswers - 1));
+        double mean = 1 + (numAnswers - 1) * p;
+        double margin = z * (numAnswers - 1) * standardError;
+        return new Estimate(guess, mean, Math.max(1, mean - margin), mean + margin, m);
+    }
+}
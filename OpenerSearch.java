@@ -0,0 +1,302 @@
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Searches every opening of k non-overlapping candidate words for the ones that leave
+ * the fewest answers on average.
+ *
+ * Openings are built up one word at a time, and the answers are kept split into groups
+ * that got the same hints from the words so far. Adding a word only has to refine the
+ * groups of its prefix with a Partition.Refiner (one pass over the answers) instead of
+ * recomputing every hint, so each prefix is shared by all of the openings that start with it.
+ *
+ * The search can also be run as an anytime search: first words are taken in candidate
+ * order (so the most promising ones go first), every new best opening is reported as
+ * soon as it's found, and a SearchControl can stop it early with the best so far.
+ *
+ * The best openings are kept in the search, so each one can only be run once.
+ */
+public class OpenerSearch {
+    private final List<Guess> candidates;
+    private final int numAnswers;
+    private final int numWords;
+    private final int topN;
+
+    // patterns[i][j] = the pattern the i-th candidate gets for the j-th answer, computed
+    // the first time the candidate is reached so a stopped search doesn't pay for all of them
+    private final AtomicReferenceArray<byte[]> patterns;
+    private final int[] packedAnswers;
+    // compatible[i] = bitset of the candidates with no letters in common with the i-th
+    private final AtomicReferenceArray<long[]> compatible;
+    // letterMasks[i] = bitmask of the letters in the i-th candidate
+    private final int[] letterMasks;
+
+    // the best openings so far, worst first so it can be trimmed to topN
+    private final PriorityQueue<OpenerResult> bestOpenings;
+    // the sum of squares an opening has to beat to make the top n, once there are n
+    private volatile long threshold = Long.MAX_VALUE;
+    // the sum of squares of the best opening so far
+    private long bestSumOfSquares = Long.MAX_VALUE;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * @param candidates the words openings can be made of
+     * @param answers the possible answers
+     * @param numWords the number of words in each opening
+     * @param topN the number of openings to keep
+     */
+    public OpenerSearch(List<Guess> candidates, Answer[] answers, int numWords, int topN) {
+        if(numWords < 1) {
+            throw new IllegalArgumentException("An opening must have at least one word");
+        }
+        this.candidates = candidates;
+        this.numAnswers = answers.length;
+        this.numWords = numWords;
+        this.topN = topN;
+
+        patterns = new AtomicReferenceArray<>(candidates.size());
+        compatible = new AtomicReferenceArray<>(candidates.size());
+        packedAnswers = new int[numAnswers];
+        for(int j = 0; j < numAnswers; j++) packedAnswers[j] = answers[j].getPacked();
+        letterMasks = new int[candidates.size()];
+        for(int i = 0; i < candidates.size(); i++) {
+            for(int k = 0; k < 5; k++) letterMasks[i] |= 1 << (candidates.get(i).charAt(k) - 'a');
+        }
+
+        bestOpenings = new PriorityQueue<>(Comparator.reverseOrder());
+    }
+
+    /**
+     * Runs the whole search
+     * @return the best openings, best first
+     */
+    public List<OpenerResult> search() {
+        return search(SearchControl.unlimited(), opening -> {});
+    }
+
+    /**
+     * Runs the search until it finishes or the control says to stop. Each thread takes the
+     * next first word in candidate order, and every candidate is checked against the control.
+     * @throws IllegalStateException if the search was already run
+     * @param control when to stop
+     * @param onImprovement called with each opening that beats every opening found before it,
+     * in order, while holding a lock, so it should return quickly and never block
+     * @return the best openings found, best first
+     */
+    public List<OpenerResult> search(SearchControl control, Consumer<OpenerResult> onImprovement) {
+        return search(control, onImprovement, 0, candidates.size());
+    }
+
+    /**
+     * Same as above, but only searches the openings whose first word is one of the
+     * candidates from firstFrom (inclusive) to firstTo (exclusive), so the search can
+     * be split into independent units of work
+     */
+    public List<OpenerResult> search(SearchControl control, Consumer<OpenerResult> onImprovement,
+            int firstFrom, int firstTo) {
+        start();
+        return run(control, onImprovement, firstFrom, firstTo);
+    }
+
+    private void start() {
+        if(!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("An OpenerSearch can only be run once");
+        }
+    }
+
+    private List<OpenerResult> run(SearchControl control, Consumer<OpenerResult> onImprovement,
+            int firstFrom, int firstTo) {
+        int end = Math.min(firstTo, candidates.size());
+        AtomicInteger nextFirst = new AtomicInteger(firstFrom);
+        int numThreads = Math.min(Runtime.getRuntime().availableProcessors(), Math.max(1, end - firstFrom));
+        SolverMetrics.timed("opener search", () -> IntStream.range(0, numThreads).parallel().forEach(t -> {
+            Worker worker = new Worker(control, onImprovement);
+            int first;
+            while(!control.shouldStop() && (first = nextFirst.getAndIncrement()) < end) {
+                worker.searchFrom(first);
+            }
+        }));
+        return getBestOpenings();
+    }
+
+    /**
+     * Runs the search on another thread, publishing each improving opening to the subscriber
+     * as it's found. The subscriber is completed when the search finishes or the control stops it.
+     * Openings are delivered on their own thread, so a slow subscriber doesn't take one from
+     * the search, and if it falls a whole buffer behind the openings it hasn't room for are
+     * dropped rather than holding up the search (the later ones are better anyway).
+     * @param control when to stop
+     * @param subscriber receives the improving openings
+     * @return the best openings found once the search is over
+     * @throws IllegalStateException if the search was already run
+     */
+    public CompletableFuture<List<OpenerResult>> searchAsync(SearchControl control,
+            Flow.Subscriber<? super OpenerResult> subscriber) {
+        start();
+        ExecutorService delivery = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "opener search delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        SubmissionPublisher<OpenerResult> publisher = new SubmissionPublisher<>(delivery, Flow.defaultBufferSize());
+        publisher.subscribe(subscriber);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return run(control, opening -> publisher.offer(opening, (s, dropped) -> false), 0, candidates.size());
+            } catch(RuntimeException e) {
+                publisher.closeExceptionally(e);
+                throw e;
+            } finally {
+                publisher.close();
+                // lets the subscriber finish getting what's already published
+                delivery.shutdown();
+            }
+        });
+    }
+
+    /**
+     * Returns the best openings found so far, best first
+     */
+    public List<OpenerResult> getBestOpenings() {
+        List<OpenerResult> ret;
+        synchronized(bestOpenings) {
+            ret = new ArrayList<>(bestOpenings);
+        }
+        Collections.sort(ret);
+        return ret;
+    }
+
+    /**
+     * Returns the bitset of the candidates that don't share any letters with the given one,
+     * computed the first time it's needed
+     */
+    private long[] compatibleWith(int candidate) {
+        long[] ret = compatible.get(candidate);
+        if(ret == null) {
+            ret = new long[(candidates.size() + 63) / 64];
+            int mask = letterMasks[candidate];
+            for(int i = 0; i < candidates.size(); i++) {
+                if((letterMasks[i] & mask) == 0) ret[i >>> 6] |= 1L << i;
+            }
+            compatible.set(candidate, ret);
+        }
+        return ret;
+    }
+
+    // returns the first set bit at or after from, or -1 if there isn't one
+    private static int nextSetBit(long[] bits, int from) {
+        int w = from >>> 6;
+        if(w >= bits.length) return -1;
+        long word = bits[w] & (-1L << from);
+        while(true) {
+            if(word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if(++w == bits.length) return -1;
+            word = bits[w];
+        }
+    }
+
+    private byte[] patternsOf(int candidate) {
+        byte[] ret = patterns.get(candidate);
+        if(ret == null) {
+            // two threads may both compute the same patterns, which is harmless
+            ret = new byte[numAnswers];
+            int packedGuess = candidates.get(candidate).getPacked();
+            for(int j = 0; j < numAnswers; j++) {
+                ret[j] = (byte) Feedback.compute(packedGuess, packedAnswers[j]);
+            }
+            SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, numAnswers);
+            patterns.set(candidate, ret);
+        }
+        return ret;
+    }
+
+    // the most groups a partition of the answers can have (the first word's patterns
+    // are used as group numbers directly, so there can be 243 even with fewer answers)
+    private int maxGroups() {
+        return Math.max(numAnswers, Feedback.NUM_PATTERNS);
+    }
+
+    private void offer(int[] chosen, long sumOfSquares, Consumer<OpenerResult> onImprovement) {
+        if(sumOfSquares >= threshold) return;
+        Guess[] opening = new Guess[numWords];
+        for(int i = 0; i < numWords; i++) opening[i] = candidates.get(chosen[i]);
+        OpenerResult result = new OpenerResult(opening, sumOfSquares, numAnswers);
+        synchronized(bestOpenings) {
+            bestOpenings.add(result);
+            if(sumOfSquares < bestSumOfSquares) {
+                bestSumOfSquares = sumOfSquares;
+                onImprovement.accept(result);
+            }
+            if(bestOpenings.size() > topN) bestOpenings.poll();
+            if(bestOpenings.size() == topN) threshold = bestOpenings.peek().getSumOfSquares();
+        }
+    }
+
+    /**
+     * Scratch space for searching on one thread
+     */
+    private class Worker {
+        private final SearchControl control;
+        private final Consumer<OpenerResult> onImprovement;
+        // groups[d][j] = the group of the j-th answer after the first d + 1 words
+        private final int[][] groups = new int[numWords][numAnswers];
+        private final int[] chosen = new int[numWords];
+        // allowedCandidates[d] = bitset of the candidates that don't overlap the first d + 1 words
+        private final long[][] allowedCandidates = new long[numWords][(candidates.size() + 63) / 64];
+
+        private final Partition.Refiner refiner = new Partition.Refiner(numAnswers, maxGroups());
+
+        Worker(SearchControl control, Consumer<OpenerResult> onImprovement) {
+            this.control = control;
+            this.onImprovement = onImprovement;
+        }
+
+        private void searchFrom(int first) {
+            chosen[0] = first;
+            byte[] firstPatterns = patternsOf(first);
+            if(numWords == 1) {
+                int[] sizes = new int[Feedback.NUM_PATTERNS];
+                long sumOfSquares = 0;
+                for(int j = 0; j < numAnswers; j++) {
+                    sumOfSquares += 2 * sizes[firstPatterns[j] & 0xFF]++ + 1;
+                }
+                offer(chosen, sumOfSquares, onImprovement);
+                return;
+            }
+
+            // the groups after the first word are just its patterns
+            for(int j = 0; j < numAnswers; j++) groups[0][j] = firstPatterns[j] & 0xFF;
+            allowedCandidates[0] = compatibleWith(first);
+            search(1, first + 1);
+        }
+
+        private void search(int depth, int start) {
+            long[] allowed = allowedCandidates[depth - 1];
+            for(int i = nextSetBit(allowed, start); i >= 0; i = nextSetBit(allowed, i + 1)) {
+                if(control.shouldStop()) return;
+                chosen[depth] = i;
+                if(depth == numWords - 1) {
+                    offer(chosen, refiner.sumOfSquares(groups[depth - 1], patternsOf(i)), onImprovement);
+                } else {
+                    // only refine if there is a later candidate left to finish the opening with
+                    long[] compatible = compatibleWith(i);
+                    long[] nextAllowed = allowedCandidates[depth];
+                    for(int w = 0; w < nextAllowed.length; w++) nextAllowed[w] = allowed[w] & compatible[w];
+                    if(nextSetBit(nextAllowed, i + 1) < 0) continue;
+                    refiner.refine(groups[depth - 1], patternsOf(i), groups[depth]);
+                    search(depth + 1, i + 1);
+                }
+            }
+        }
+    }
+}
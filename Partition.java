@@ -0,0 +1,240 @@
+import java.util.Arrays;
+
+/**
+ * A split of the answers in a pool into groups that got the same hints, stored as
+ * the group of each answer plus the answers sorted by group (like a counting sort).
+ * Answers are referred to by their index in the pool.
+ */
+public class Partition {
+
+    /**
+     * Refines groups given as an array of group ids instead of as a Partition, reusing its
+     * scratch space so it can be called over and over without allocating (like for every
+     * opening in a search). Each pair code (group * 243 + pattern) is mapped to its refined
+     * group, and the mapping is cleared between calls by bumping a stamp instead of zeroing
+     * it. Not thread safe, so each thread needs its own.
+     */
+    public static class Refiner {
+        private final int numAnswers;
+        // maps a pair code to its refined group, which is only valid if the code's stamp
+        // is the current stamp
+        private final int[] codeGroups;
+        private final int[] codeStamps;
+        private int stamp = 0;
+        private final int[] groupSizes;
+
+        /**
+         * @param numAnswers the number of answers
+         * @param maxGroups the most groups the parent groups can have
+         */
+        public Refiner(int numAnswers, int maxGroups) {
+            this.numAnswers = numAnswers;
+            codeGroups = new int[maxGroups * Feedback.NUM_PATTERNS];
+            codeStamps = new int[maxGroups * Feedback.NUM_PATTERNS];
+            groupSizes = new int[numAnswers];
+        }
+
+        private int nextStamp() {
+            if(stamp == Integer.MAX_VALUE) {
+                Arrays.fill(codeStamps, 0);
+                stamp = 0;
+            }
+            return ++stamp;
+        }
+
+        /**
+         * Splits each group by the patterns of another guess. Refined groups are numbered in
+         * the order they first appear.
+         * @param parentGroups the group of each answer
+         * @param patterns the pattern of each answer
+         * @param refinedGroups filled in with the refined group of each answer
+         * @return the number of refined groups
+         */
+        public int refine(int[] parentGroups, byte[] patterns, int[] refinedGroups) {
+            int stamp = nextStamp();
+            int[] codeGroups = this.codeGroups;
+            int[] codeStamps = this.codeStamps;
+            int count = 0;
+            for(int j = 0; j < numAnswers; j++) {
+                int code = parentGroups[j] * Feedback.NUM_PATTERNS + (patterns[j] & 0xFF);
+                if(codeStamps[code] != stamp) {
+                    codeStamps[code] = stamp;
+                    codeGroups[code] = count++;
+                }
+                refinedGroups[j] = codeGroups[code];
+            }
+            return count;
+        }
+
+        /**
+         * Same as refine, but only sums the squared sizes of the refined groups
+         */
+        public long sumOfSquares(int[] parentGroups, byte[] patterns) {
+            int stamp = nextStamp();
+            int[] codeGroups = this.codeGroups;
+            int[] codeStamps = this.codeStamps;
+            int count = 0;
+            long sumOfSquares = 0;
+            int[] groupSizes = this.groupSizes;
+            for(int j = 0; j < numAnswers; j++) {
+                int code = parentGroups[j] * Feedback.NUM_PATTERNS + (patterns[j] & 0xFF);
+                if(codeStamps[code] != stamp) {
+                    codeStamps[code] = stamp;
+                    codeGroups[code] = count;
+                    groupSizes[count++] = 0;
+                }
+                // (s + 1)^2 - s^2 = 2s + 1
+                sumOfSquares += 2 * groupSizes[codeGroups[code]]++ + 1;
+            }
+            return sumOfSquares;
+        }
+    }
+
+    // groupOf[j] = the group of the j-th answer
+    private final int[] groupOf;
+    private final int numGroups;
+    // the answers in the i-th group are order[groupStarts[i]] to order[groupStarts[i + 1] - 1]
+    private final int[] groupStarts;
+    private final int[] order;
+
+    private Partition(int[] groupOf, int numGroups, int[] groupStarts, int[] order) {
+        this.groupOf = groupOf;
+        this.numGroups = numGroups;
+        this.groupStarts = groupStarts;
+        this.order = order;
+    }
+
+    /**
+     * Returns the partition with every answer in one group, i.e. before any guesses
+     * @param numAnswers the number of answers in the pool
+     */
+    public static Partition whole(int numAnswers) {
+        int[] order = new int[numAnswers];
+        for(int j = 0; j < numAnswers; j++) order[j] = j;
+        return new Partition(new int[numAnswers], numAnswers == 0 ? 0 : 1, new int[] {0, numAnswers}, order);
+    }
+
+    /**
+     * Builds a partition from existing group ids by counting sort
+     * @param groupOf the group of each answer, from 0 to numGroups - 1
+     * @param numGroups the number of groups
+     */
+    public static Partition fromGroups(int[] groupOf, int numGroups) {
+        int[] groupStarts = new int[numGroups + 1];
+        for(int group : groupOf) groupStarts[group + 1]++;
+        for(int i = 0; i < numGroups; i++) groupStarts[i + 1] += groupStarts[i];
+
+        int[] next = Arrays.copyOf(groupStarts, numGroups);
+        int[] order = new int[groupOf.length];
+        for(int j = 0; j < groupOf.length; j++) order[next[groupOf[j]]++] = j;
+        return new Partition(groupOf.clone(), numGroups, groupStarts, order);
+    }
+
+    /**
+     * Splits every group by the pattern each answer got from one more guess in a single
+     * linear pass. This is a counting sort on the pair code (group * 243 + pattern), done one
+     * parent group at a time since the answers are already sorted by group, so only 243
+     * counters are needed. Within a parent group, the new groups are numbered in the order
+     * their patterns first appear, so the answers stay in their original order in each group.
+     * @param patterns the pattern of each answer
+     * @return the refined partition
+     */
+    public Partition refine(int[] patterns) {
+        int n = groupOf.length;
+        int[] newGroupOf = new int[n];
+        int[] newOrder = new int[n];
+        int[] newGroupStarts = new int[n + 1];
+        int numNewGroups = 0;
+
+        int[] counts = new int[Feedback.NUM_PATTERNS];
+        int[] patternGroups = new int[Feedback.NUM_PATTERNS];
+        int[] seenPatterns = new int[Feedback.NUM_PATTERNS];
+        int[] next = new int[n];
+
+        for(int group = 0; group < numGroups; group++) {
+            int from = groupStarts[group];
+            int to = groupStarts[group + 1];
+
+            // count each pattern in the group, remembering the order they appear in
+            int numSeen = 0;
+            for(int k = from; k < to; k++) {
+                int pattern = patterns[order[k]];
+                if(counts[pattern]++ == 0) seenPatterns[numSeen++] = pattern;
+            }
+
+            // give each pattern a new group
+            int start = from;
+            for(int s = 0; s < numSeen; s++) {
+                int pattern = seenPatterns[s];
+                patternGroups[pattern] = numNewGroups;
+                newGroupStarts[numNewGroups] = start;
+                next[numNewGroups++] = start;
+                start += counts[pattern];
+                counts[pattern] = 0;
+            }
+
+            // place each answer in its new group
+            for(int k = from; k < to; k++) {
+                int answer = order[k];
+                int newGroup = patternGroups[patterns[answer]];
+                newGroupOf[answer] = newGroup;
+                newOrder[next[newGroup]++] = answer;
+            }
+        }
+        newGroupStarts[numNewGroups] = n;
+
+        return new Partition(newGroupOf, numNewGroups,
+                Arrays.copyOf(newGroupStarts, numNewGroups + 1), newOrder);
+    }
+
+    public int numAnswers() {
+        return groupOf.length;
+    }
+
+    public int numGroups() {
+        return numGroups;
+    }
+
+    public int groupOf(int answer) {
+        return groupOf[answer];
+    }
+
+    /**
+     * Returns a copy of the group of every answer
+     */
+    public int[] getGroups() {
+        return groupOf.clone();
+    }
+
+    public int groupSize(int group) {
+        return groupStarts[group + 1] - groupStarts[group];
+    }
+
+    /**
+     * Returns the indeces of the answers in a group, in their original order
+     */
+    public int[] members(int group) {
+        return Arrays.copyOfRange(order, groupStarts[group], groupStarts[group + 1]);
+    }
+
+    public int largestGroupSize() {
+        int largest = 0;
+        for(int group = 0; group < numGroups; group++) {
+            largest = Math.max(largest, groupSize(group));
+        }
+        return largest;
+    }
+
+    /**
+     * Returns the sum of the squared group sizes, which is the number of answers left
+     * on average times the number of answers
+     */
+    public long sumOfSquares() {
+        long sum = 0;
+        for(int group = 0; group < numGroups; group++) {
+            long size = groupSize(group);
+            sum += size * size;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.List;
+
+/**
+ * Letter frequency tables for the answers in a pool. A child pool can get its tables
+ * either by counting its own answers or by subtracting the answers it doesn't have
+ * from its parent's tables, whichever touches fewer answers.
+ */
+public class PoolStats {
+    private int size;
+    // letterCounts[c] = occurences of the c-th letter across all answers
+    private int[] letterCounts;
+    // answersWithLetter[c] = number of answers containing the c-th letter
+    private int[] answersWithLetter;
+    // positionCounts[26 * i + c] = number of answers with the c-th letter at index i
+    private int[] positionCounts;
+    // duplicateCounts[c] = number of answers containing the c-th letter more than once
+    private int[] duplicateCounts;
+
+    private PoolStats() {
+        letterCounts = new int[26];
+        answersWithLetter = new int[26];
+        positionCounts = new int[5 * 26];
+        duplicateCounts = new int[26];
+    }
+
+    public static PoolStats of(List<Answer> answers) {
+        PoolStats stats = new PoolStats();
+        for(Answer answer : answers) stats.update(answer, 1);
+        return stats;
+    }
+
+    /**
+     * Computes the tables for a subset of a parent pool's answers by subtracting the
+     * answers that aren't in the subset, which is cheaper than counting the subset when
+     * it has most of the parent's answers
+     * @param parent the parent pool's tables
+     * @param removed the parent's answers that aren't in the subset
+     */
+    public static PoolStats without(PoolStats parent, List<Answer> removed) {
+        PoolStats stats = new PoolStats();
+        stats.size = parent.size;
+        System.arraycopy(parent.letterCounts, 0, stats.letterCounts, 0, 26);
+        System.arraycopy(parent.answersWithLetter, 0, stats.answersWithLetter, 0, 26);
+        System.arraycopy(parent.positionCounts, 0, stats.positionCounts, 0, 5 * 26);
+        System.arraycopy(parent.duplicateCounts, 0, stats.duplicateCounts, 0, 26);
+        for(Answer answer : removed) stats.update(answer, -1);
+        return stats;
+    }
+
+    // adds (sign = 1) or removes (sign = -1) an answer from the tables
+    private void update(Answer answer, int sign) {
+        size += sign;
+        int seen = 0;
+        for(int i = 0; i < 5; i++) {
+            int c = answer.charAt(i) - 'a';
+            letterCounts[c] += sign;
+            positionCounts[26 * i + c] += sign;
+            if((seen & (1 << c)) == 0) {
+                seen |= 1 << c;
+                answersWithLetter[c] += sign;
+                if(answer.letterCount(c) > 1) duplicateCounts[c] += sign;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int letterCount(int c) {
+        return letterCounts[c];
+    }
+
+    public int answersWithLetter(int c) {
+        return answersWithLetter[c];
+    }
+
+    public int positionCount(int index, int c) {
+        return positionCounts[26 * index + c];
+    }
+
+    public int duplicateCount(int c) {
+        return duplicateCounts[c];
+    }
+
+    /**
+     * Returns a copy of the letter counts
+     */
+    public int[] getLetterCounts() {
+        return letterCounts.clone();
+    }
+
+    /**
+     * Returns the bitmask of the letters in any of the answers
+     */
+    public int letterUnion() {
+        int mask = 0;
+        for(int c = 0; c < 26; c++) {
+            if(answersWithLetter[c] > 0) mask |= 1 << c;
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the bitmask of the letters at the given index in any of the answers
+     */
+    public int positionLetters(int index) {
+        int mask = 0;
+        for(int c = 0; c < 26; c++) {
+            if(positionCounts[26 * index + c] > 0) mask |= 1 << c;
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the bitmask of the letters that are at the exact same indeces in every
+     * answer, which includes the letters that aren't in any answer
+     */
+    public int fixedLetters() {
+        int mask = 0;
+        for(int c = 0; c < 26; c++) {
+            boolean fixed = answersWithLetter[c] == 0;
+            if(answersWithLetter[c] == size) {
+                fixed = true;
+                for(int i = 0; i < 5 && fixed; i++) {
+                    int count = positionCounts[26 * i + c];
+                    fixed = count == 0 || count == size;
+                }
+            }
+            if(fixed) mask |= 1 << c;
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ranked next guesses precomputed for the pools most games reach in their first two
+ * guesses, so common requests don't rank the same pools over and over.
+ *
+ * The cache is built by playing each configured opener, then the top ranked guess after
+ * each of its hints, and ranking the pools left after each (guess, hint) prefix. A pool
+ * is looked up by its fingerprint rather than by the prefix, so any prefix that leaves the
+ * same answers hits too. Prefixes that more answers lead to are more common, so if there
+ * are too many the ones leaving the biggest pools are kept. Pools with two or fewer answers
+ * are cheap to rank live and aren't cached.
+ *
+ * The cache never changes once it's built: the fingerprints are kept sorted in one array
+ * for binary search, next to the ranked guesses of every pool packed into another. The
+ * rankings only hold for the guess list they were made with, so a hash of that list is
+ * written with them and checked when they're loaded.
+ */
+public class PrefixCache {
+    private static final int MAGIC = 0x50524632; // "PRF2"
+    // the magic number, the number of pools, the number of guesses per pool and the guess list's hash
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + Long.BYTES;
+
+    // keys[k] = the fingerprint of the k-th pool, sorted
+    private final long[] keys;
+    // the k-th pool's guesses are packedGuesses[k * numGuesses] until the next pool's,
+    // best first, with -1s at the end if the pool had fewer useful guesses
+    private final int[] packedGuesses;
+    private final int numGuesses;
+    private final long guessListHash;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private PrefixCache(long[] keys, int[] packedGuesses, int numGuesses, long guessListHash) {
+        this.keys = keys;
+        this.packedGuesses = packedGuesses;
+        this.numGuesses = numGuesses;
+        this.guessListHash = guessListHash;
+    }
+
+    /**
+     * Returns a hash of the guesses in order, since the order breaks ties in the rankings
+     */
+    public static long hashOf(Guess[] guesses) {
+        long hash = 0x9E3779B97F4A7C15L ^ guesses.length;
+        for(Guess guess : guesses) {
+            hash = (hash ^ guess.getPacked()) * 0xBF58476D1CE4E5B9L;
+            hash ^= hash >>> 31;
+        }
+        return hash;
+    }
+
+    /**
+     * Ranks the pools reached by the openers' most common prefixes
+     * @param calc the calculator to rank the pools with
+     * @param openers the openers to precompute
+     * @param numGuesses the number of guesses to keep for each pool
+     * @param maxPools the most pools to keep
+     */
+    public static PrefixCache build(WordleCalculator calc, String[] openers, int numGuesses, int maxPools) {
+        // fingerprint -> pool, in the order they're found
+        Map<Long, AnswerPool> pools = new LinkedHashMap<>();
+        for(String opener : openers) {
+            for(AnswerPool child : calc.getRootAnswerPool().getChildren(new Guess(opener))) {
+                if(child.size() <= 2) continue;
+                pools.putIfAbsent(child.getFingerprint(), child);
+                Guess next = calc.rankNextGuesses(child, 1).get(0);
+                for(AnswerPool grandchild : child.getChildren(next)) {
+                    if(grandchild.size() > 2) pools.putIfAbsent(grandchild.getFingerprint(), grandchild);
+                }
+            }
+        }
+        List<AnswerPool> biggest = new ArrayList<>(pools.values());
+        biggest.sort(Comparator.comparingInt(answerPool -> -answerPool.size()));
+        List<AnswerPool> kept = new ArrayList<>(biggest.subList(0, Math.min(maxPools, biggest.size())));
+        kept.sort(Comparator.comparingLong(AnswerPool::getFingerprint));
+
+        long[] keys = new long[kept.size()];
+        int[] packedGuesses = new int[kept.size() * numGuesses];
+        Arrays.fill(packedGuesses, -1);
+        SolverMetrics.timed("prefix cache", () -> {
+            for(int k = 0; k < keys.length; k++) {
+                AnswerPool answerPool = kept.get(k);
+                keys[k] = answerPool.getFingerprint();
+                List<Guess> ranked = calc.rankNextGuesses(answerPool, numGuesses);
+                for(int i = 0; i < ranked.size(); i++) packedGuesses[k * numGuesses + i] = ranked.get(i).getPacked();
+            }
+        });
+        return new PrefixCache(keys, packedGuesses, numGuesses, hashOf(calc.getGuesses()));
+    }
+
+    /**
+     * Reads a cache written with write
+     * @param guesses the guess list the cache will be used with, which must be the one it was built with
+     * @throws IOException if the file isn't a whole prefix cache or was built with a different guess list
+     */
+    public static PrefixCache load(Path path, Guess[] guesses) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if(buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a prefix cache: " + path);
+        }
+        int numPools = buffer.getInt();
+        int numGuesses = buffer.getInt();
+        long guessListHash = buffer.getLong();
+        if(numPools < 0 || numGuesses < 0 || buffer.remaining() != (long) numPools * (Long.BYTES + (long) numGuesses * Integer.BYTES)) {
+            throw new IOException("Truncated or corrupt prefix cache: " + path);
+        }
+        if(guessListHash != hashOf(guesses)) {
+            throw new IOException("Prefix cache was built with a different guess list: " + path);
+        }
+        long[] keys = new long[numPools];
+        buffer.asLongBuffer().get(keys);
+        buffer.position(buffer.position() + numPools * Long.BYTES);
+        int[] packedGuesses = new int[numPools * numGuesses];
+        buffer.asIntBuffer().get(packedGuesses);
+        return new PrefixCache(keys, packedGuesses, numGuesses, guessListHash);
+    }
+
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + keys.length * Long.BYTES + packedGuesses.length * Integer.BYTES);
+        buffer.putInt(MAGIC).putInt(keys.length).putInt(numGuesses).putLong(guessListHash);
+        for(long key : keys) buffer.putLong(key);
+        for(int packed : packedGuesses) buffer.putInt(packed);
+        Files.write(path, buffer.array());
+    }
+
+    /**
+     * Looks up the ranked guesses for a pool
+     * @param n the number of guesses wanted
+     * @return the best guesses, best first, or null if the pool isn't cached or more guesses
+     * were wanted than were cached
+     */
+    public List<Guess> get(AnswerPool answerPool, int n) {
+        int k = Arrays.binarySearch(keys, answerPool.getFingerprint());
+        if(k < 0 || n > numGuesses) {
+            misses.incrementAndGet();
+            SolverMetrics.increment(SolverMetrics.Counter.PREFIX_CACHE_MISSES);
+            return null;
+        }
+        hits.incrementAndGet();
+        SolverMetrics.increment(SolverMetrics.Counter.PREFIX_CACHE_HITS);
+        List<Guess> ret = new ArrayList<>(n);
+        for(int i = k * numGuesses; i < k * numGuesses + n && packedGuesses[i] != -1; i++) {
+            ret.add(new Guess(Feedback.unpack(packedGuesses[i])));
+        }
+        return ret;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the fraction of lookups that were hits, or 0 if there haven't been any
+     */
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d pools cached (%,d hits, %,d misses, %.1f%% hit rate)",
+                keys.length, hits.get(), misses.get(), 100 * getHitRate());
+    }
+
+    /**
+     * Usage (from the directory with io/): java PrefixCache outputFile numGuesses maxPools openers...
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 4) {
+            System.out.println("Usage: java PrefixCache outputFile numGuesses maxPools openers...");
+            return;
+        }
+        WordleCalculator calc = new WordleCalculator();
+        long start = System.nanoTime();
+        PrefixCache cache = build(calc, Arrays.copyOfRange(args, 3, args.length),
+                Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        cache.write(Paths.get(args[0]));
+        System.out.println(String.format("%,d pools cached in %.1f seconds", cache.size(), (System.nanoTime() - start) / 1e9));
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Helpers for ranking words by a score that is computed exactly once per word
+ */
+public class Ranking {
+    private Ranking() {}
+
+    /**
+     * Computes every score in parallel
+     * @param n the number of words
+     * @param scorer maps a word's index to its score
+     * @return the score of each word
+     */
+    public static int[] scores(int n, IntUnaryOperator scorer) {
+        int[] scores = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> scores[i] = scorer.applyAsInt(i));
+        return scores;
+    }
+
+    /**
+     * Selects the k highest scores with a bounded heap instead of sorting everything.
+     * Ties go to the lower index, like a stable sort would.
+     * @param scores the score of each word
+     * @param k the number of words to select
+     * @param filter the words that can be selected
+     * @return the indeces of the selected words, highest score first
+     */
+    public static int[] topK(int[] scores, int k, IntPredicate filter) {
+        return topK(scores.length, k, filter,
+                (a, b) -> scores[a] > scores[b] || (scores[a] == scores[b] && a < b));
+    }
+
+    /**
+     * Same as above, for scores that don't fit in an int
+     */
+    public static int[] topK(long[] scores, int k, IntPredicate filter) {
+        return topK(scores.length, k, filter,
+                (a, b) -> scores[a] > scores[b] || (scores[a] == scores[b] && a < b));
+    }
+
+    /**
+     * Same as above, for scores that aren't whole numbers
+     */
+    public static int[] topK(double[] scores, int k, IntPredicate filter) {
+        return topK(scores.length, k, filter,
+                (a, b) -> scores[a] > scores[b] || (scores[a] == scores[b] && a < b));
+    }
+
+    // isBetter.test(a, b) is true if the a-th word should be selected before the b-th
+    private static int[] topK(int n, int k, IntPredicate filter, IntBiPredicate isBetter) {
+        // min heap of the best indeces so far, with the worst at the root
+        int[] heap = new int[Math.max(0, Math.min(k, n))];
+        int size = 0;
+        if(heap.length == 0) return heap;
+        for(int i = 0; i < n; i++) {
+            if(!filter.test(i)) continue;
+            if(size < heap.length) {
+                heap[size] = i;
+                siftUp(heap, size++, isBetter);
+            } else if(isBetter.test(i, heap[0])) {
+                heap[0] = i;
+                siftDown(heap, size, isBetter);
+            }
+        }
+
+        // pop the worst first to fill the result from the back
+        int[] ret = new int[size];
+        for(int i = size - 1; i >= 0; i--) {
+            ret[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size, isBetter);
+        }
+        return ret;
+    }
+
+    public static int[] topK(int[] scores, int k) {
+        return topK(scores, k, i -> true);
+    }
+
+    private interface IntBiPredicate {
+        boolean test(int a, int b);
+    }
+
+    private static void siftUp(int[] heap, int index, IntBiPredicate isBetter) {
+        int item = heap[index];
+        while(index > 0) {
+            int parent = (index - 1) / 2;
+            if(!isBetter.test(heap[parent], item)) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = item;
+    }
+
+    private static void siftDown(int[] heap, int size, IntBiPredicate isBetter) {
+        if(size == 0) return;
+        int item = heap[0];
+        int index = 0;
+        while(2 * index + 1 < size) {
+            int child = 2 * index + 1;
+            if(child + 1 < size && isBetter.test(heap[child], heap[child + 1])) child++;
+            if(!isBetter.test(item, heap[child])) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = item;
+    }
+}
@@ -0,0 +1,43 @@
+import java.time.Duration;
+
+/**
+ * Tells a long running search when to stop, either because its time budget ran
+ * out or because it was cancelled, so that it can return its best result so far
+ */
+public class SearchControl {
+    private final long deadline; // in System.nanoTime() terms
+    private volatile boolean cancelled;
+
+    private SearchControl(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Returns a control that only stops when cancelled
+     */
+    public static SearchControl unlimited() {
+        return new SearchControl(Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a control that stops once the budget has passed (or when cancelled)
+     * @param budget the time budget, starting now
+     */
+    public static SearchControl withBudget(Duration budget) {
+        long now = System.nanoTime();
+        long nanos = budget.toNanos();
+        return new SearchControl(nanos >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + nanos);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean shouldStop() {
+        return cancelled || (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0);
+    }
+}
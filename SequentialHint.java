@@ -29,7 +29,7 @@ public class SequentialHint {
     }
 
     private static final String INVALID_SEQUENCE =
-            "The hint sequence can only contain 1, 2, or 3 for gray, yellow, or green";
+            "The hint sequence can only contain 1, 2, or 3 (or ⬛/⬜, 🟨, or 🟩) for gray, yellow, or green";
     private static final String INVALID_LENGTH =
             "The hint sequence must be 5 characters";
 
@@ -73,18 +73,60 @@ public class SequentialHint {
         }
     }
 
+    /**
+     * Constructs a hint from a string like "13212" (1 for gray, 2 for yellow, 3 for green)
+     * or from the emojis that toString gives, like "⬛🟩🟨⬛🟨" (white squares count as gray)
+     */
     public SequentialHint(Guess guess, String hintSequence) {
         this.guess = guess;
-        if(hintSequence.length() != 5) {
-            throw new IllegalArgumentException(INVALID_LENGTH);
-        }
+        int pattern = parsePattern(hintSequence);
+        hints = new LetterHint[5];
         for(int i = 0; i < 5; i++) {
-            int num = hintSequence.charAt(i) - '0'; // either 1 2 or 3
-            if(num < 1 || num > 3) {
-                throw new IllegalArgumentException(INVALID_SEQUENCE);
+            hints[i] = LetterHint.values()[Feedback.stateAt(pattern, i)];
+        }
+    }
+
+    /**
+     * Parses a hint string (see above) into a pattern code (see Feedback)
+     * @throws IllegalArgumentException if the string isn't 5 hints
+     */
+    public static int parsePattern(String hintSequence) {
+        return parsePattern(hintSequence, 0, hintSequence.length());
+    }
+
+    /**
+     * Parses the hint sequence in text.substring(from, to) without copying it
+     */
+    public static int parsePattern(String text, int from, int to) {
+        int pattern = 0;
+        int numHints = 0;
+        for(int k = from; k < to; ) {
+            int codePoint = text.codePointAt(k);
+            k += Character.charCount(codePoint);
+            int state;
+            switch(codePoint) {
+                case '1': case 0x2B1B: case 0x2B1C: state = Feedback.GRAY; break; // ⬛ ⬜
+                case '2': case 0x1F7E8: state = Feedback.YELLOW; break; // 🟨
+                case '3': case 0x1F7E9: state = Feedback.GREEN; break; // 🟩
+                case 0xFE0F: continue; // emoji variation selector
+                default: throw new IllegalArgumentException(INVALID_SEQUENCE);
             }
-            hints[i] = LetterHint.getFromNum(num);
+            if(numHints == 5) throw new IllegalArgumentException(INVALID_LENGTH);
+            pattern += state * Feedback.POW3[numHints++];
+        }
+        if(numHints != 5) throw new IllegalArgumentException(INVALID_LENGTH);
+        return pattern;
+    }
+
+    /**
+     * Returns the pattern code of this hint (see Feedback)
+     */
+    public int getPattern() {
+        int pattern = 0;
+        for(int i = 0; i < 5; i++) {
+            pattern += hints[i].ordinal() * Feedback.POW3[i];
         }
+        return pattern;
     }
 
     public Guess getGuess() {
@@ -0,0 +1,146 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A persistent memo of solved answer pools: an append-only log of fixed size records
+ * on disk, plus an in-memory index of every record that is rebuilt when the log is opened.
+ *
+ * Each record is a key (the pool's fingerprint mixed with the search parameters), the best
+ * guess as a packed word, and the expected number of guesses. If the same key is written
+ * twice, the last record wins. A partial record at the end of the log (from a crash in the
+ * middle of a write) is ignored and overwritten.
+ */
+public class SolutionStore implements Closeable {
+    private static final int RECORD_SIZE = Long.BYTES + Integer.BYTES + Double.BYTES;
+
+    /**
+     * The best guess for a pool and the expected number of guesses to solve it
+     */
+    public static class Entry {
+        private final int packedGuess;
+        private final double cost;
+
+        public Entry(int packedGuess, double cost) {
+            this.packedGuess = packedGuess;
+            this.cost = cost;
+        }
+
+        public int getPackedGuess() {
+            return packedGuess;
+        }
+
+        public String getGuess() {
+            return Feedback.unpack(packedGuess);
+        }
+
+        public double getCost() {
+            return cost;
+        }
+    }
+
+    private final FileChannel log;
+    private final Map<Long, Entry> index = new HashMap<>();
+    private final ByteBuffer pending = ByteBuffer.allocate(RECORD_SIZE * 1024);
+    private int hits;
+    private int misses;
+
+    /**
+     * Opens (or creates) a store and reads its log into memory
+     * @param path the log file
+     */
+    public SolutionStore(Path path) throws IOException {
+        log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long numRecords = log.size() / RECORD_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 4096);
+        long position = 0;
+        long end = numRecords * RECORD_SIZE;
+        while(position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            while(buffer.hasRemaining()) {
+                if(log.read(buffer, position + buffer.position()) < 0) break;
+            }
+            buffer.flip();
+            while(buffer.remaining() >= RECORD_SIZE) {
+                long key = buffer.getLong();
+                int packedGuess = buffer.getInt();
+                double cost = buffer.getDouble();
+                index.put(key, new Entry(packedGuess, cost));
+            }
+            position += buffer.position();
+        }
+        // drop a partial record left by a crash
+        log.truncate(end);
+        log.position(end);
+    }
+
+    /**
+     * Mixes a pool fingerprint with the parameters of the search that solved it
+     * @param fingerprint the pool's fingerprint (see AnswerPool.getFingerprint)
+     * @param parameters a description of the search parameters
+     */
+    public static long keyOf(long fingerprint, String parameters) {
+        long hash = fingerprint;
+        for(int i = 0; i < parameters.length(); i++) {
+            hash = (hash ^ parameters.charAt(i)) * 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Looks up a solved pool
+     * @return the entry, or null if the pool hasn't been solved with these parameters
+     */
+    public synchronized Entry get(long key) {
+        Entry entry = index.get(key);
+        if(entry == null) {
+            misses++;
+            SolverMetrics.increment(SolverMetrics.Counter.CACHE_MISSES);
+        } else {
+            hits++;
+            SolverMetrics.increment(SolverMetrics.Counter.CACHE_HITS);
+        }
+        return entry;
+    }
+
+    /**
+     * Records a solved pool. Records are buffered, so call flush or close to make sure
+     * they reach the disk.
+     */
+    public synchronized void put(long key, int packedGuess, double cost) throws IOException {
+        index.put(key, new Entry(packedGuess, cost));
+        if(pending.remaining() < RECORD_SIZE) flush();
+        pending.putLong(key).putInt(packedGuess).putDouble(cost);
+    }
+
+    public synchronized void flush() throws IOException {
+        pending.flip();
+        while(pending.hasRemaining()) log.write(pending);
+        pending.clear();
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        log.force(false);
+        log.close();
+    }
+}
@@ -0,0 +1,225 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Counters and phase timers for the solver internals.
+ *
+ * Counting is off unless the JVM is started with -Dwordle.metrics=true. Since ENABLED is a
+ * static final, the JIT drops the counting code entirely when it's off, so the hot paths
+ * cost nothing extra. Counters are LongAdders so threads don't fight over them when it's on.
+ *
+ * Phases are also recorded as JDK Flight Recorder events (wordle.Phase), and while metrics
+ * are on the counters are recorded once a second (wordle.Counters), so a recording like
+ *   java -Dwordle.metrics=true -XX:StartFlightRecording=filename=run.jfr WordleCalculator
+ * shows where a slow run spent its time.
+ */
+public class SolverMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("wordle.metrics");
+
+    public enum Counter {
+        // patterns computed for a guess and an answer
+        HINTS_COMPUTED,
+        // words checked against a DetailedHint
+        COMPLIANCE_CHECKS,
+        // lookups in the solved pool memos
+        CACHE_HITS,
+        CACHE_MISSES,
+        // lookups in the PrefixCache
+        PREFIX_CACHE_HITS,
+        PREFIX_CACHE_MISSES,
+        POOLS_CREATED,
+        // guesses rankNextGuesses didn't score because they can't split the pool
+        GUESSES_SKIPPED
+    }
+
+    private static final LongAdder[] counters = new LongAdder[Counter.values().length];
+    // phase name -> {number of times run, total nanoseconds}
+    private static final Map<String, LongAdder[]> phases = new ConcurrentHashMap<>();
+    // whether a JFR recording wants phase events, checked before making one
+    private static final EventType PHASE_EVENT_TYPE = EventType.getEventType(PhaseEvent.class);
+    // the phase startPhase returns when nothing is timed or recorded, which does nothing when closed
+    private static final Phase NO_PHASE = new Phase(null);
+
+    static {
+        for(int i = 0; i < counters.length; i++) counters[i] = new LongAdder();
+        if(ENABLED) {
+            FlightRecorder.addPeriodicEvent(CountersEvent.class, () -> {
+                CountersEvent event = new CountersEvent();
+                event.hintsComputed = get(Counter.HINTS_COMPUTED);
+                event.complianceChecks = get(Counter.COMPLIANCE_CHECKS);
+                event.cacheHits = get(Counter.CACHE_HITS);
+                event.cacheMisses = get(Counter.CACHE_MISSES);
+                event.prefixCacheHits = get(Counter.PREFIX_CACHE_HITS);
+                event.prefixCacheMisses = get(Counter.PREFIX_CACHE_MISSES);
+                event.poolsCreated = get(Counter.POOLS_CREATED);
+                event.guessesSkipped = get(Counter.GUESSES_SKIPPED);
+                event.commit();
+            });
+        }
+    }
+
+    private SolverMetrics() {}
+
+    public static void increment(Counter counter) {
+        if(ENABLED) counters[counter.ordinal()].increment();
+    }
+
+    public static void add(Counter counter, long amount) {
+        if(ENABLED) counters[counter.ordinal()].add(amount);
+    }
+
+    public static long get(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * Starts timing a phase, which ends when the phase is closed. timed is usually simpler.
+     * @param name the phase's name, which should be a constant since times are totaled by name
+     */
+    public static Phase startPhase(String name) {
+        // nothing to time or record, so don't allocate anything either
+        if(!ENABLED && !PHASE_EVENT_TYPE.isEnabled()) return NO_PHASE;
+        return new Phase(name);
+    }
+
+    /**
+     * Runs the body as a phase:
+     *   GuessClasses classes = SolverMetrics.timed("guess classes", () -> answerPool.getGuessClasses(guesses));
+     * @param name the phase's name, which should be a constant since times are totaled by name
+     * @return what the body returned
+     */
+    public static <T> T timed(String name, Supplier<T> body) {
+        Phase phase = startPhase(name);
+        try {
+            return body.get();
+        } finally {
+            phase.close();
+        }
+    }
+
+    /**
+     * Same as above, for a body that doesn't return anything
+     */
+    public static void timed(String name, Runnable body) {
+        Phase phase = startPhase(name);
+        try {
+            body.run();
+        } finally {
+            phase.close();
+        }
+    }
+
+    /**
+     * A running phase, which is timed in the metrics (if they're on) and recorded as a
+     * JFR event (if a recording is asking for it) when closed
+     */
+    public static class Phase implements AutoCloseable {
+        private final String name;
+        private final long start;
+        private final PhaseEvent event;
+
+        private Phase(String name) {
+            this.name = name;
+            this.start = ENABLED ? System.nanoTime() : 0;
+            if(name != null && PHASE_EVENT_TYPE.isEnabled()) {
+                PhaseEvent event = new PhaseEvent();
+                event.name = name;
+                event.begin();
+                this.event = event;
+            } else {
+                this.event = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            if(ENABLED) {
+                LongAdder[] totals = phases.computeIfAbsent(name, n -> new LongAdder[] {new LongAdder(), new LongAdder()});
+                totals[0].increment();
+                totals[1].add(System.nanoTime() - start);
+            }
+            if(event != null) event.commit();
+        }
+    }
+
+    /**
+     * Returns the number of times each phase was run and its total time in nanoseconds, by name
+     */
+    public static Map<String, long[]> getPhaseTimes() {
+        Map<String, long[]> ret = new TreeMap<>();
+        phases.forEach((name, totals) -> ret.put(name, new long[] {totals[0].sum(), totals[1].sum()}));
+        return ret;
+    }
+
+    public static void reset() {
+        for(LongAdder counter : counters) counter.reset();
+        phases.clear();
+    }
+
+    /**
+     * Returns every counter and phase time as a printable table
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        if(!ENABLED) sb.append("(metrics are off, run with -Dwordle.metrics=true to turn them on)\n");
+        for(Counter counter : Counter.values()) {
+            sb.append(String.format("%-20s %,15d%n", counter.name().toLowerCase(), get(counter)));
+        }
+        getPhaseTimes().forEach((name, totals) -> sb.append(String.format(
+                "%-20s %,15.1f ms (%,d runs)%n", name, totals[1] / 1e6, totals[0])));
+        return sb.toString();
+    }
+
+    @Name("wordle.Phase")
+    @Label("Solver Phase")
+    @Category("Wordle")
+    @Description("A phase of a search, like ranking candidates or solving a tree")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String name;
+    }
+
+    @Name("wordle.Counters")
+    @Label("Solver Counters")
+    @Category("Wordle")
+    @Period("1 s")
+    @StackTrace(false)
+    static class CountersEvent extends Event {
+        @Label("Hints Computed")
+        long hintsComputed;
+
+        @Label("Compliance Checks")
+        long complianceChecks;
+
+        @Label("Cache Hits")
+        long cacheHits;
+
+        @Label("Cache Misses")
+        long cacheMisses;
+
+        @Label("Prefix Cache Hits")
+        long prefixCacheHits;
+
+        @Label("Prefix Cache Misses")
+        long prefixCacheMisses;
+
+        @Label("Pools Created")
+        long poolsCreated;
+
+        @Label("Guesses Skipped")
+        long guessesSkipped;
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A solved strategy tree stored off the heap, as parallel arrays in one direct buffer
+ * instead of as node objects.
+ *
+ * A node is a pool of possible answers. It holds the guess to play for the pool, the
+ * pattern that led to it from its parent, and the expected number of guesses to solve
+ * the pool. Nodes are laid out breadth first, so a node's children (one for each hint
+ * besides all green) are next to each other, sorted by pattern, and the node just stores
+ * where they start. A pool with one answer is a leaf where the guess is the answer.
+ *
+ * The buffer is written to a file as is, and a file is read back by mapping it, so loading
+ * a tree doesn't copy or parse anything.
+ *
+ * Layout (little endian):
+ *   header:      MAGIC, numNodes (ints)
+ *   costs:       numNodes doubles
+ *   guesses:     numNodes ints (packed words)
+ *   firstChild:  numNodes + 1 ints, so node i's children are firstChild[i] until firstChild[i + 1]
+ *   patterns:    numNodes bytes (the root's is 0xFF)
+ */
+public class StrategyTree {
+    public static final int ROOT = 0;
+    private static final int MAGIC = 0x57545245; // "WTRE"
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int NO_PATTERN = 0xFF;
+
+    private final ByteBuffer buffer;
+    private final int numNodes;
+    private final int costsOffset;
+    private final int guessesOffset;
+    private final int firstChildOffset;
+    private final int patternsOffset;
+
+    private StrategyTree(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if(buffer.getInt(0) != MAGIC) throw new IllegalArgumentException("Not a strategy tree");
+        numNodes = buffer.getInt(Integer.BYTES);
+        costsOffset = HEADER_SIZE;
+        guessesOffset = costsOffset + numNodes * Double.BYTES;
+        firstChildOffset = guessesOffset + numNodes * Integer.BYTES;
+        patternsOffset = firstChildOffset + (numNodes + 1) * Integer.BYTES;
+        if(buffer.capacity() < sizeInBytes(numNodes)) throw new IllegalArgumentException("Strategy tree is truncated");
+    }
+
+    private static int sizeInBytes(int numNodes) {
+        return HEADER_SIZE + numNodes * (Double.BYTES + 2 * Integer.BYTES + 1) + Integer.BYTES;
+    }
+
+    /**
+     * Builds the tree of a solver's best guesses, starting with the given opener. Every pool
+     * in the tree is solved with the solver, so pools it has already solved are free.
+     * @param solver the solver
+     * @param rootPool every possible answer
+     * @param opener the first guess
+     */
+    public static StrategyTree build(TreeSolver solver, AnswerPool rootPool, Guess opener) {
+        double rootCost = solver.solveWithOpener(rootPool, opener);
+
+        // breadth first, so each node's children get added next to each other
+        List<AnswerPool> pools = new ArrayList<>();
+        List<Guess> nodeGuesses = new ArrayList<>();
+        List<Double> costs = new ArrayList<>();
+        List<Integer> patterns = new ArrayList<>();
+        List<Integer> firstChild = new ArrayList<>();
+        pools.add(rootPool);
+        nodeGuesses.add(opener);
+        costs.add(rootCost);
+        patterns.add(NO_PATTERN);
+        for(int node = 0; node < pools.size(); node++) {
+            firstChild.add(pools.size());
+            AnswerPool answerPool = pools.get(node);
+            if(answerPool.size() == 1) continue;
+            Guess guess = nodeGuesses.get(node);
+            int[] guessPatterns = answerPool.getPatterns(guess);
+            Partition partition = Partition.whole(guessPatterns.length).refine(guessPatterns);
+            List<AnswerPool> children = answerPool.getChildren(partition);
+            // sort the children by pattern so they can be binary searched
+            Integer[] order = new Integer[children.size()];
+            for(int group = 0; group < order.length; group++) order[group] = group;
+            Arrays.sort(order, (a, b) -> Integer.compare(
+                    guessPatterns[partition.members(a)[0]], guessPatterns[partition.members(b)[0]]));
+            for(int group : order) {
+                int pattern = guessPatterns[partition.members(group)[0]];
+                if(pattern == Feedback.ALL_GREEN) continue;
+                AnswerPool child = children.get(group);
+                TreeSolver.Solution solution = solver.solve(child);
+                pools.add(child);
+                nodeGuesses.add(solution.getGuess());
+                costs.add(solution.getCost());
+                patterns.add(pattern);
+            }
+        }
+        firstChild.add(pools.size());
+
+        int numNodes = pools.size();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(sizeInBytes(numNodes)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(numNodes);
+        for(double cost : costs) buffer.putDouble(cost);
+        for(Guess guess : nodeGuesses) buffer.putInt(guess.getPacked());
+        for(int start : firstChild) buffer.putInt(start);
+        for(int pattern : patterns) buffer.put((byte) pattern);
+        return new StrategyTree(buffer.clear());
+    }
+
+    /**
+     * Maps a tree written with write. The file's pages are only read as nodes are visited.
+     */
+    public static StrategyTree map(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new StrategyTree(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the tree to a file, byte for byte as it is in memory
+     */
+    public void write(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer contents = buffer.duplicate().clear().limit(sizeInBytes(numNodes));
+            while(contents.hasRemaining()) channel.write(contents);
+        }
+    }
+
+    public int size() {
+        return numNodes;
+    }
+
+    public int getPackedGuess(int node) {
+        return buffer.getInt(guessesOffset + node * Integer.BYTES);
+    }
+
+    public Guess getGuess(int node) {
+        return new Guess(Feedback.unpack(getPackedGuess(node)));
+    }
+
+    /**
+     * Returns the expected number of guesses to solve the node's pool, counting its guess
+     */
+    public double getCost(int node) {
+        return buffer.getDouble(costsOffset + node * Double.BYTES);
+    }
+
+    /**
+     * Returns the pattern that led to the node, or -1 for the root
+     */
+    public int getPattern(int node) {
+        int pattern = buffer.get(patternsOffset + node) & 0xFF;
+        return pattern == NO_PATTERN ? -1 : pattern;
+    }
+
+    public int numChildren(int node) {
+        return firstChild(node + 1) - firstChild(node);
+    }
+
+    private int firstChild(int node) {
+        return buffer.getInt(firstChildOffset + node * Integer.BYTES);
+    }
+
+    /**
+     * Returns the node reached when the node's guess gets the pattern, or -1 if the pattern
+     * is all green or no answer in the node's pool gets it
+     */
+    public int getChild(int node, int pattern) {
+        int lo = firstChild(node);
+        int hi = firstChild(node + 1) - 1;
+        while(lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midPattern = buffer.get(patternsOffset + mid) & 0xFF;
+            if(midPattern < pattern) lo = mid + 1;
+            else if(midPattern > pattern) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Follows a sequence of patterns from the root
+     * @return the node reached, or -1 if the sequence leaves the tree
+     */
+    public int navigate(int... patterns) {
+        int node = ROOT;
+        for(int i = 0; i < patterns.length && node != -1; i++) node = getChild(node, patterns[i]);
+        return node;
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Scores every guess against every answer without ever holding a guess by answer table,
+ * so it works for word lists far too big for one (100k guesses by 100k answers would be 10GB).
+ *
+ * The guesses are split into blocks that are each handled by one thread. For each block,
+ * the answers are streamed through in blocks too, and each guess in the block adds its
+ * patterns for the answer block to its own histogram. A block's histograms and an answer
+ * block together fit in a typical L2 cache, so every answer block is read from memory once
+ * per guess block instead of once per guess, and memory use only depends on the block sizes.
+ */
+public class TiledScorer {
+    // 64 histograms of 243 ints is about 62KB, which leaves room in a 256KB L2 cache
+    public static final int GUESS_BLOCK = 64;
+    // 4096 packed answers is 16KB, small enough to stay in L1/L2 while a guess block runs
+    public static final int ANSWER_BLOCK = 4096;
+
+    /**
+     * Receives a guess's finished histogram. It's called from several threads at once,
+     * and the histogram array is only valid until the call returns.
+     */
+    public interface HistogramConsumer {
+        void accept(int guessIdx, int[] histogram);
+    }
+
+    private final int[] packedGuesses;
+    private final int[] packedAnswers;
+
+    /**
+     * @param packedGuesses the packed guesses (see Feedback.pack)
+     * @param packedAnswers the packed answers
+     */
+    public TiledScorer(int[] packedGuesses, int[] packedAnswers) {
+        this.packedGuesses = packedGuesses;
+        this.packedAnswers = packedAnswers;
+    }
+
+    public static TiledScorer of(Guess[] guesses, List<Answer> answers) {
+        int[] packedGuesses = new int[guesses.length];
+        for(int i = 0; i < guesses.length; i++) packedGuesses[i] = guesses[i].getPacked();
+        int[] packedAnswers = new int[answers.size()];
+        for(int j = 0; j < packedAnswers.length; j++) packedAnswers[j] = answers.get(j).getPacked();
+        return new TiledScorer(packedGuesses, packedAnswers);
+    }
+
+    public int numGuesses() {
+        return packedGuesses.length;
+    }
+
+    public int numAnswers() {
+        return packedAnswers.length;
+    }
+
+    /**
+     * Computes how many answers get each pattern from each guess, handing every guess's
+     * histogram to the consumer as soon as its block is done
+     */
+    public void forEachHistogram(HistogramConsumer consumer) {
+        int numBlocks = (packedGuesses.length + GUESS_BLOCK - 1) / GUESS_BLOCK;
+        IntStream.range(0, numBlocks).parallel().forEach(block -> {
+            int from = block * GUESS_BLOCK;
+            int to = Math.min(from + GUESS_BLOCK, packedGuesses.length);
+            // counts[(i - from) * 243 + pattern] = the number of answers the i-th guess gives the pattern
+            int[] counts = new int[(to - from) * Feedback.NUM_PATTERNS];
+            for(int answerFrom = 0; answerFrom < packedAnswers.length; answerFrom += ANSWER_BLOCK) {
+                int answerTo = Math.min(answerFrom + ANSWER_BLOCK, packedAnswers.length);
+                for(int i = from; i < to; i++) {
+                    int packedGuess = packedGuesses[i];
+                    int base = (i - from) * Feedback.NUM_PATTERNS;
+                    for(int j = answerFrom; j < answerTo; j++) {
+                        counts[base + Feedback.compute(packedGuess, packedAnswers[j])]++;
+                    }
+                }
+                SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, (long) (to - from) * (answerTo - answerFrom));
+            }
+
+            int[] histogram = new int[Feedback.NUM_PATTERNS];
+            for(int i = from; i < to; i++) {
+                System.arraycopy(counts, (i - from) * Feedback.NUM_PATTERNS, histogram, 0, Feedback.NUM_PATTERNS);
+                consumer.accept(i, histogram);
+            }
+        });
+    }
+
+    /**
+     * Returns the sum of the squared bucket sizes of each guess, where lower is better
+     * (dividing by the number of answers gives the average number of answers left)
+     */
+    public long[] sumsOfSquares() {
+        long[] sumsOfSquares = new long[packedGuesses.length];
+        forEachHistogram((i, histogram) -> {
+            long sum = 0;
+            for(int count : histogram) sum += (long) count * count;
+            sumsOfSquares[i] = sum;
+        });
+        return sumsOfSquares;
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.*;
+
+/**
+ * A group of answers that differ only at one index (like the "_ight" family),
+ * which can take many guesses to get through one word at a time
+ */
+public class TrapCluster implements Comparable<TrapCluster> {
+    private int hole;
+    private List<Answer> answers;
+    private Guess bestSplitter;
+    private double splitCost;
+
+    public TrapCluster(int hole, List<Answer> answers) {
+        this.hole = hole;
+        this.answers = answers;
+        this.splitCost = getNaiveCost();
+    }
+
+    public List<Answer> getAnswers() {
+        return answers;
+    }
+
+    public int size() {
+        return answers.size();
+    }
+
+    /**
+     * Returns the letters the answers share, with an underscore at the index where they differ
+     */
+    public String getPattern() {
+        String word = answers.get(0).getWord();
+        return word.substring(0, hole) + "_" + word.substring(hole + 1);
+    }
+
+    /**
+     * Expected number of guesses to find the answer by guessing the answers one at a time
+     */
+    public double getNaiveCost() {
+        return (answers.size() + 1) / 2.0;
+    }
+
+    /**
+     * Returns the guess that leaves the fewest expected guesses afterwards, or null if
+     * guessing the answers one at a time is better
+     */
+    public Guess getBestSplitter() {
+        return bestSplitter;
+    }
+
+    /**
+     * Expected number of guesses to find the answer by guessing the best splitter first
+     * and then the remaining answers one at a time
+     */
+    public double getSplitCost() {
+        return splitCost;
+    }
+
+    /**
+     * Finds the guess that best splits up the cluster, assuming the remaining answers
+     * are guessed one at a time afterwards
+     * @param guesses the guesses to try
+     */
+    public void findBestSplitter(Guess[] guesses) {
+        int k = answers.size();
+        IntCounter counter = new IntCounter(k);
+        for(Guess guess : guesses) {
+            counter.clear();
+            boolean isAnswer = false;
+            for(Answer answer : answers) {
+                int pattern = Feedback.compute(guess, answer);
+                if(pattern == Feedback.ALL_GREEN) isAnswer = true;
+                counter.increment(pattern);
+            }
+            SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, k);
+            if(counter.size() == 1) continue;
+
+            // a group of s answers takes (s + 1) / 2 more guesses on average, except
+            // for the guess itself which takes none
+            double cost = 1;
+            for(int s : counter.getCounts()) cost += s * (s + 1) / (2.0 * k);
+            if(isAnswer) cost -= 1.0 / k;
+
+            if(cost < splitCost) {
+                splitCost = cost;
+                bestSplitter = guess;
+            }
+        }
+    }
+
+    @Override
+    public int compareTo(TrapCluster o) {
+        return Double.compare(o.splitCost, this.splitCost);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(getPattern() + " (");
+        for(int i = 0; i < answers.size() - 1; i++) {
+            sb.append(answers.get(i) + ", ");
+        }
+        sb.append(answers.get(answers.size() - 1) + ")");
+        sb.append(String.format(" takes %,.2f guesses one at a time", getNaiveCost()));
+        if(bestSplitter != null) {
+            sb.append(String.format(" or %,.2f starting with %s", splitCost, bestSplitter));
+        }
+        return sb.toString();
+    }
+}
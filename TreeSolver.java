@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Finds a strategy for an answer pool that minimizes the expected number of guesses,
+ * trying the answers in the pool plus the guesses that split it best at every step.
+ *
+ * Solved pools are remembered in memory and, if a SolutionStore is given, on disk, keyed by
+ * the pool's fingerprint and the search parameters. Since a pool is identified by its answers
+ * rather than by the guesses that led to it, a run with a different opener reuses every
+ * pool it has in common with earlier runs.
+ *
+ * Candidates are tried in the order a CostModel estimates they'll do, and a candidate is
+ * cut off once the lower bounds of its groups (see CostModel.lowerBound) can't beat the best
+ * one so far. A pool stops trying candidates once one meets the pool's own lower bound.
+ * Both can be turned off, which makes every candidate's cost exact (for checking
+ * lowerBound itself, see CostModel.main).
+ *
+ * Once a pool is small enough, its patterns are materialized into a FeedbackSlab that
+ * every pool below it gathers its own slab from, so deep subtrees never go back to the
+ * full answer list.
+ */
+public class TreeSolver {
+    // pools with at most this many answers get a FeedbackSlab
+    public static final int SLAB_MAX_ANSWERS = 100;
+
+    /**
+     * The best guess for a pool and the expected number of guesses to solve it
+     */
+    public static class Solution {
+        private final Guess guess;
+        private final double cost;
+
+        public Solution(Guess guess, double cost) {
+            this.guess = guess;
+            this.cost = cost;
+        }
+
+        public Guess getGuess() {
+            return guess;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%,.4f guesses)", guess, cost);
+        }
+    }
+
+    private final Guess[] guesses;
+    private final int numCandidates;
+    private final SolutionStore store;
+    private final String parameters;
+    private final CostModel costModel;
+    private final boolean prune;
+    private final Map<Long, Solution> memo = new HashMap<>();
+
+    /**
+     * @param guesses every allowed guess
+     * @param numCandidates the number of guesses (besides the pool's answers) tried for each pool
+     * @param store the persistent memo, or null to only remember solutions in memory
+     */
+    public TreeSolver(Guess[] guesses, int numCandidates, SolutionStore store) {
+        this(guesses, numCandidates, store, CostModel.UNCALIBRATED);
+    }
+
+    /**
+     * @param costModel the model to order candidates by. It doesn't change the costs found,
+     * so solutions are stored under the same key with any model
+     */
+    public TreeSolver(Guess[] guesses, int numCandidates, SolutionStore store, CostModel costModel) {
+        this(guesses, numCandidates, store, costModel, true);
+    }
+
+    /**
+     * @param prune whether to cut off candidates and pools by CostModel.lowerBound. Without
+     * it, no candidate's cost relies on the lower bound, so solutions are stored under their own key
+     */
+    public TreeSolver(Guess[] guesses, int numCandidates, SolutionStore store, CostModel costModel, boolean prune) {
+        this.guesses = guesses;
+        this.numCandidates = numCandidates;
+        this.store = store;
+        this.costModel = costModel;
+        this.prune = prune;
+        this.parameters = "TreeSolver candidates=" + numCandidates + " guesses=" + guesses.length
+                + (prune ? "" : " unpruned");
+    }
+
+    /**
+     * Returns the expected number of guesses to solve the root pool when starting with the given opener
+     */
+    public double solveWithOpener(AnswerPool rootPool, Guess opener) {
+        return SolverMetrics.timed("tree solve", () -> 1 + childrenCost(rootPool, opener, Double.MAX_VALUE));
+    }
+
+    public Solution solve(AnswerPool answerPool) {
+        if(answerPool.size() == 1) {
+            return new Solution(new Guess(answerPool.getAnswers().get(0).getWord()), 1);
+        }
+
+        long key = SolutionStore.keyOf(answerPool.getFingerprint(), parameters);
+        Solution solution = memo.get(key);
+        if(solution != null) {
+            SolverMetrics.increment(SolverMetrics.Counter.CACHE_HITS);
+            return solution;
+        }
+        if(store != null) {
+            SolutionStore.Entry entry = store.get(key);
+            if(entry != null) {
+                solution = new Solution(new Guess(entry.getGuess()), entry.getCost());
+                memo.put(key, solution);
+                return solution;
+            }
+        } else {
+            SolverMetrics.increment(SolverMetrics.Counter.CACHE_MISSES);
+        }
+
+        if(answerPool.size() <= SLAB_MAX_ANSWERS) answerPool.materializeSlab(guesses);
+        Guess bestGuess = null;
+        double bestCost = Double.MAX_VALUE;
+        for(Guess candidate : getCandidates(answerPool)) {
+            // the candidate can't do better than 1 + the chance it isn't the answer
+            double cost = 1 + childrenCost(answerPool, candidate, bestCost - 1);
+            if(cost < bestCost) {
+                bestCost = cost;
+                bestGuess = candidate;
+            }
+            // nothing can beat the pool's lower bound
+            if(prune && bestCost <= CostModel.lowerBound(answerPool.size()) + 1e-12) break;
+        }
+
+        solution = new Solution(bestGuess, bestCost);
+        memo.put(key, solution);
+        if(store != null) {
+            try {
+                store.put(key, bestGuess.getPacked(), bestCost);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * Returns the expected number of guesses after the given guess, or (when pruning) a number
+     * greater than or equal to the cutoff as soon as it's sure to be at least the cutoff
+     */
+    private double childrenCost(AnswerPool answerPool, Guess guess, double cutoff) {
+        int n = answerPool.size();
+        Partition partition = answerPool.getPartition(guess);
+        if(partition.numGroups() == 1 && !isInPool(answerPool, guess)) return Double.MAX_VALUE;
+
+        List<AnswerPool> children = answerPool.getChildren(partition);
+        if(!prune) {
+            double cost = 0;
+            for(AnswerPool child : children) {
+                if(!isSolved(child, guess)) cost += solve(child).getCost() * child.size() / n;
+            }
+            return cost;
+        }
+
+        // every group that isn't the guess itself takes at least its lower bound
+        double lowerBound = 0;
+        for(AnswerPool child : children) {
+            if(!isSolved(child, guess)) lowerBound += CostModel.lowerBound(child.size()) * child.size() / n;
+        }
+        if(lowerBound >= cutoff) return lowerBound;
+
+        // solve the smallest groups first so the bound tightens quickly
+        children.sort(Comparator.comparingInt(AnswerPool::size));
+        double cost = lowerBound;
+        for(AnswerPool child : children) {
+            if(isSolved(child, guess)) continue;
+            cost += (solve(child).getCost() - CostModel.lowerBound(child.size())) * child.size() / n;
+            if(cost >= cutoff) return cost;
+        }
+        return cost;
+    }
+
+    private static boolean isSolved(AnswerPool child, Guess guess) {
+        return child.size() == 1 && child.getAnswers().get(0).getPacked() == guess.getPacked();
+    }
+
+    private static boolean isInPool(AnswerPool answerPool, Guess guess) {
+        for(Answer answer : answerPool.getAnswers()) {
+            if(answer.getPacked() == guess.getPacked()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the pool's answers followed by the guesses that split it best
+     */
+    private List<Guess> getCandidates(AnswerPool answerPool) {
+        List<Guess> candidates = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for(Answer answer : answerPool.getAnswers()) {
+            candidates.add(new Guess(answer.getWord()));
+            seen.add(answer.getPacked());
+        }
+        if(answerPool.size() <= 2) return candidates;
+
+        // a slab only keeps the guesses that split its pool
+        Guess[] useful = answerPool.getSlab() != null
+                ? answerPool.getSlab().getGuesses()
+                : answerPool.filterUsefulGuesses(guesses).toArray();
+        GuessClasses classes = answerPool.getGuessClasses(useful);
+        int[] scores = new int[classes.numClasses()];
+        for(int c = 0; c < scores.length; c++) scores[c] = -classes.getSumOfSquares(c);
+        for(int c : Ranking.topK(scores, numCandidates, c -> !classes.isAnswer(c))) {
+            Guess guess = classes.getRepresentative(c);
+            if(seen.add(guess.getPacked())) candidates.add(guess);
+        }
+
+        // try the guesses the cost model likes best first, whether or not they're answers
+        List<Guess> ordered = new ArrayList<>(candidates);
+        Map<Guess, Double> estimates = new HashMap<>();
+        for(Guess guess : ordered) {
+            Partition partition = answerPool.getPartition(guess);
+            int solvedGroup = -1;
+            List<Answer> answers = answerPool.getAnswers();
+            for(int j = 0; j < answers.size() && solvedGroup == -1; j++) {
+                if(answers.get(j).getPacked() == guess.getPacked()) solvedGroup = partition.groupOf(j);
+            }
+            estimates.put(guess, costModel.estimateChildren(partition, solvedGroup));
+        }
+        ordered.sort(Comparator.comparingDouble(estimates::get));
+        return ordered;
+    }
+}
@@ -0,0 +1,184 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Ranks guesses by looking one guess ahead: a guess is scored by the answers expected to be
+ * left after it and then the best follow-up guess in each of its groups, instead of just by
+ * the answers left after it.
+ *
+ * Only the guesses that rank best by the one step score are tried, and follow-ups are only
+ * looked for among the guesses that split the whole pool best plus the answers in the group,
+ * which keeps the cost to a small multiple of ranking one step ahead.
+ *
+ * Guesses are tried from the best one step score to the worst. A group of s answers leaves
+ * at least s - 1 answers (times its share of the pool) even after a perfect follow-up, so a
+ * guess is skipped if that bound can't beat the n-th best guess so far, and its groups stop
+ * being evaluated as soon as the bound, tightened with each group that's done, can't either.
+ */
+public class TwoPlyRanker {
+
+    /**
+     * A guess and the answers it's expected to leave after the best follow-up
+     */
+    public static class Result implements Comparable<Result> {
+        private final Guess guess;
+        // the sum over the guess's groups of the answers left after the group's best follow-up
+        // times the group's size, i.e. the expected answers left times the pool size
+        private final long total;
+        private final int numAnswers;
+
+        public Result(Guess guess, long total, int numAnswers) {
+            this.guess = guess;
+            this.total = total;
+            this.numAnswers = numAnswers;
+        }
+
+        public Guess getGuess() {
+            return guess;
+        }
+
+        public double getExpectedRemaining() {
+            return (double) total / numAnswers;
+        }
+
+        @Override
+        public int compareTo(Result other) {
+            return Long.compare(this.total, other.total);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s leaves %,.3f words after the best follow-up", guess, getExpectedRemaining());
+        }
+    }
+
+    private final Guess[] guesses;
+    private final int numCandidates;
+    private final int numFollowUps;
+    private int numPruned;
+
+    /**
+     * @param guesses every allowed guess
+     * @param numCandidates the number of guesses to score two steps ahead
+     * @param numFollowUps the number of guesses (besides a group's answers) to try as follow-ups
+     */
+    public TwoPlyRanker(Guess[] guesses, int numCandidates, int numFollowUps) {
+        this.guesses = guesses;
+        this.numCandidates = numCandidates;
+        this.numFollowUps = numFollowUps;
+    }
+
+    /**
+     * Returns the number of candidates skipped or cut short during the last call to rank
+     */
+    public int getNumPruned() {
+        return numPruned;
+    }
+
+    /**
+     * Ranks the guesses for a pool two steps ahead
+     * @param answerPool the pool of possible answers
+     * @param n the number of guesses to return
+     * @return the best guesses, best first
+     */
+    public List<Result> rank(AnswerPool answerPool, int n) {
+        numPruned = 0;
+        if(answerPool.size() == 1) {
+            return List.of(new Result(new Guess(answerPool.getAnswers().get(0).getWord()), 0, 1));
+        }
+        int numAnswers = answerPool.size();
+        int[] packedAnswers = new int[numAnswers];
+        for(int j = 0; j < numAnswers; j++) packedAnswers[j] = answerPool.getAnswers().get(j).getPacked();
+
+        // order the guesses by their one step score, like rankNextGuesses
+        GuessClasses classes = SolverMetrics.timed("guess classes",
+                () -> answerPool.getGuessClasses(answerPool.filterUsefulGuesses(guesses).toArray()));
+        int[] scores = new int[classes.numClasses()];
+        for(int c = 0; c < scores.length; c++) {
+            scores[c] = -2 * classes.getSumOfSquares(c) + (classes.isAnswer(c) ? 1 : 0);
+        }
+        int[] order = Ranking.topK(scores, Math.max(numCandidates, numFollowUps));
+        int[] followUps = new int[Math.min(numFollowUps, order.length)];
+        for(int i = 0; i < followUps.length; i++) followUps[i] = classes.getRepresentative(order[i]).getPacked();
+
+        // max heap of the best n results so far, with the worst at the root
+        PriorityQueue<Result> best = new PriorityQueue<>(Comparator.reverseOrder());
+        SolverMetrics.timed("two-ply ranking", () -> {
+            for(int i = 0; i < order.length && i < numCandidates; i++) {
+                Guess guess = classes.getRepresentative(order[i]);
+                long threshold = best.size() == n ? best.peek().total : Long.MAX_VALUE;
+                long total = evaluate(answerPool, guess, packedAnswers, followUps, threshold);
+                if(total >= threshold) {
+                    numPruned++;
+                    continue;
+                }
+                best.add(new Result(guess, total, numAnswers));
+                if(best.size() > n) best.poll();
+            }
+        });
+
+        List<Result> ret = new ArrayList<>(best);
+        Collections.sort(ret);
+        return ret;
+    }
+
+    /**
+     * Returns the total answers left after the guess and the best follow-up in each group,
+     * or a number at least as big as the threshold as soon as it's sure to be that big
+     */
+    private long evaluate(AnswerPool answerPool, Guess guess, int[] packedAnswers, int[] followUps, long threshold) {
+        int[] patterns = answerPool.getPatterns(guess);
+        Partition partition = Partition.whole(packedAnswers.length).refine(patterns);
+
+        // a group of s answers leaves at least s - 1 after any follow-up, and none if it's
+        // just the guess or has one answer
+        long bound = 0;
+        List<Integer> openGroups = new ArrayList<>();
+        for(int group = 0; group < partition.numGroups(); group++) {
+            int s = partition.groupSize(group);
+            if(patterns[partition.members(group)[0]] == Feedback.ALL_GREEN || s <= 1) continue;
+            bound += s - 1;
+            // with two answers, guessing one of them hits the bound
+            if(s > 2) openGroups.add(group);
+        }
+        if(bound >= threshold) return bound;
+
+        // evaluate the biggest groups first since they tighten the bound the most
+        openGroups.sort(Comparator.comparingInt(group -> -partition.groupSize(group)));
+        AtomicLong tightBound = new AtomicLong(bound);
+        AtomicBoolean cutOff = new AtomicBoolean();
+        IntStream.range(0, openGroups.size()).parallel().forEach(k -> {
+            if(cutOff.get()) return;
+            int[] members = partition.members(openGroups.get(k));
+            int[] group = new int[members.length];
+            for(int j = 0; j < members.length; j++) group[j] = packedAnswers[members[j]];
+            long left = bestFollowUp(group, followUps);
+            if(tightBound.addAndGet(left - (group.length - 1)) >= threshold) cutOff.set(true);
+        });
+        return tightBound.get();
+    }
+
+    /**
+     * Returns the fewest answers (times the group's size) any follow-up leaves in the group,
+     * not counting an answer it solves
+     */
+    private static long bestFollowUp(int[] group, int[] followUps) {
+        int[] counts = new int[Feedback.NUM_PATTERNS];
+        long fewest = Long.MAX_VALUE;
+        for(int k = 0; k < followUps.length + group.length; k++) {
+            int followUp = k < followUps.length ? followUps[k] : group[k - followUps.length];
+            Arrays.fill(counts, 0);
+            long sumOfSquares = 0;
+            for(int answer : group) {
+                sumOfSquares += 2 * counts[Feedback.compute(followUp, answer)]++ + 1;
+            }
+            SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, group.length);
+            fewest = Math.min(fewest, sumOfSquares - counts[Feedback.ALL_GREEN]);
+            // can't do better than splitting the group up completely
+            if(fewest == group.length - 1) break;
+        }
+        return fewest;
+    }
+}
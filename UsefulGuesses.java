@@ -0,0 +1,32 @@
+import java.util.List;
+
+/**
+ * The guesses left after filtering out the ones that can't split an answer pool,
+ * along with how many were skipped
+ */
+public class UsefulGuesses {
+    private List<Guess> guesses;
+    private int numSkipped;
+
+    public UsefulGuesses(List<Guess> guesses, int numSkipped) {
+        this.guesses = guesses;
+        this.numSkipped = numSkipped;
+    }
+
+    public List<Guess> getGuesses() {
+        return guesses;
+    }
+
+    public Guess[] toArray() {
+        return guesses.toArray(new Guess[0]);
+    }
+
+    public int getNumSkipped() {
+        return numSkipped;
+    }
+
+    @Override
+    public String toString() {
+        return guesses.size() + " useful guesses (" + numSkipped + " skipped)";
+    }
+}
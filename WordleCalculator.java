@@ -1,8 +1,11 @@
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 public class WordleCalculator {
 
@@ -12,6 +15,14 @@ public class WordleCalculator {
     private Answer[] answers;
     private AnswerPool rootAnswerPool;
     public int[] charFreqs; // frequencies of characters across all wordle answers
+    // scores of every guess against the root answer pool, computed the first time they're needed
+    private int[] guessScores;
+    private int[] guessCharSetFreqs;
+    // GuessClasses keeps a byte per guess per answer, so past this many bytes guesses are ranked in tiles instead
+    private static final long MAX_CLASS_BYTES = 256L << 20;
+    // rankings precomputed for common pools, or null to always rank live
+    private PrefixCache prefixCache;
+    private CostModel costModel = CostModel.UNCALIBRATED;
 
     public WordleCalculator() throws AssertionError, IOException {
         try (
@@ -47,13 +58,7 @@ public class WordleCalculator {
             }
 
             rootAnswerPool = new AnswerPool(Arrays.asList(answers));
-
-            charFreqs = new int[26];
-            for(Answer answer : answers) {
-                for(char c : answer.getWord().toCharArray()) {
-                    charFreqs[c - 'a']++;
-                }
-            }
+            charFreqs = rootAnswerPool.getStats().getLetterCounts();
         }
     }
 
@@ -61,10 +66,18 @@ public class WordleCalculator {
         return guesses[i];
     }
 
+    public Guess[] getGuesses() {
+        return guesses;
+    }
+
     public Answer getAnswer(int i) {
         return answers[i];
     }
 
+    public AnswerPool getRootAnswerPool() {
+        return rootAnswerPool;
+    }
+
     public void addElimToGuess(int guessIdx, int turn) {
         guesses[guessIdx].addElim(turn);
     }
@@ -134,23 +147,19 @@ public class WordleCalculator {
         Guess firstGuess = new Guess(firstWord);
         List<Opening> openings = new ArrayList<>();
         Set<Answer> seenAnswers = new HashSet<>();
+        List<Answer> answerList = Arrays.asList(answers);
         System.out.println("getting openings...");
         for(int i = 0; i < NUM_ANSWERS; i++) {
 
             if(seenAnswers.contains(answers[i])) continue;
             
             // get a new possible first hint
-            DetailedHint firstHint = new DetailedHint(firstGuess, answers[i]);
+            CompiledHint firstHint = new DetailedHint(firstGuess, answers[i]).compile();
             SequentialHint sequentialFirstHint = new SequentialHint(firstGuess, answers[i]);
 
             // get the list of possible answers given the first hint
-            List<Answer> possibleAnswers = new ArrayList<>();
-            for(Answer answer : answers) {
-                if(firstHint.wordIsCompliant(answer)) {
-                    possibleAnswers.add(answer);
-                    seenAnswers.add(answer);
-                }
-            }
+            List<Answer> possibleAnswers = firstHint.filter(answerList);
+            seenAnswers.addAll(possibleAnswers);
 
             // find the best second guess for the list of possible answers
             int mostElims = 0;
@@ -161,12 +170,8 @@ public class WordleCalculator {
                 for(Guess secondGuess : guesses) {
                     int numElims = 0;
                     for(Answer realAnswer : possibleAnswers) {
-                        DetailedHint secondHint = new DetailedHint(secondGuess, realAnswer);
-                        for(Answer fakeAnswer : answers) {
-                            if(!secondHint.wordIsCompliant(fakeAnswer)) {
-                                numElims++;
-                            }
-                        }
+                        CompiledHint secondHint = new DetailedHint(secondGuess, realAnswer).compile();
+                        numElims += answerList.size() - secondHint.count(answerList);
                     }
                     if(numElims > mostElims) {
                         mostElims = numElims;
@@ -196,128 +201,514 @@ public class WordleCalculator {
                 usedChars[c - 'a'] = true;
             }
         }
-        return Stream.of(guesses)
-            .filter(g -> !g.containsDuplicates() && !g.overlapsWith(usedChars))
-            .sorted(Comparator.comparing(rootAnswerPool::getGuessCharSetFreqs).reversed())
-            .limit(n).toList();
+        if(guessCharSetFreqs == null) {
+            guessCharSetFreqs = Ranking.scores(NUM_GUESSES,
+                    i -> rootAnswerPool.getGuessCharSetFreqs(guesses[i]));
+        }
+        int[] top = Ranking.topK(guessCharSetFreqs, n,
+                i -> !guesses[i].containsDuplicates() && !guesses[i].overlapsWith(usedChars));
+        return toGuessList(top);
     }
 
-    public String[] getWorstWords(int n) {
-        List<Map<String, List<String>>> groups = new ArrayList<>(5);
-        for(int i = 0; i < 5; i++) {
-            Map<String, List<String>> map = new HashMap<>();
-            for(Guess guess : guesses) {
-                String group = guess.getWord().substring(0, i) + guess.getWord().substring(i+1);
-                if(!map.containsKey(group)) map.put(group, new ArrayList<>());
-                map.get(group).add(guess.getWord());
-            }
-            groups.add(map);
+    /**
+     * Groups words that are the same except at the given index, keyed by the index
+     * and the packed word with that letter masked out
+     * @param words the packed words
+     * @param hole the index that can differ
+     * @return map from each group's key to the indeces of the words in the group
+     */
+    private static LongListMap groupByHole(int[] words, int hole) {
+        LongListMap groups = new LongListMap(words.length);
+        long holeKey = (long) hole << 32;
+        int holeMask = ~(31 << (5 * hole));
+        for(int i = 0; i < words.length; i++) {
+            groups.add(holeKey | (words[i] & holeMask), i);
         }
+        return groups;
+    }
 
-        List<List<String>> worstGroups = new ArrayList<>();
-        for(int i = 0; i < 5; i++) {
-            for(List<String> group : groups.get(i).values()) {
-                worstGroups.add(group);
+    private static List<LongListMap> groupByEachHole(int[] words) {
+        return IntStream.range(0, 5).parallel()
+                .mapToObj(hole -> groupByHole(words, hole))
+                .toList();
+    }
+
+    public String[] getWorstWords(int n) {
+        int[] packedGuesses = new int[NUM_GUESSES];
+        for(int i = 0; i < NUM_GUESSES; i++) packedGuesses[i] = guesses[i].getPacked();
+        List<LongListMap> groups = groupByEachHole(packedGuesses);
+
+        // keep the n largest groups as {hole, key index} pairs in a min heap
+        PriorityQueue<int[]> worstGroups = new PriorityQueue<>(
+                Comparator.comparingInt(group -> groups.get(group[0]).sizeAt(group[1])));
+        for(int hole = 0; hole < 5; hole++) {
+            for(int i = 0; i < groups.get(hole).numKeys(); i++) {
+                worstGroups.add(new int[] {hole, i});
+                if(worstGroups.size() > n) worstGroups.poll();
             }
         }
 
-        worstGroups = worstGroups.stream()
-                .sorted(Comparator.comparing(List<String>::size).reversed())
-                .limit(n)
-                .toList();
         String[] ret = new String[n];
-        for(int i = 0; i < n; i++) {
-            ret[i] = worstGroups.get(i).stream().min(Comparator.reverseOrder()).orElse("none");
+        Arrays.fill(ret, "none");
+        for(int i = worstGroups.size() - 1; i >= 0; i--) {
+            int[] group = worstGroups.poll();
+            String last = null;
+            for(int guessIdx : groups.get(group[0]).valuesAt(group[1])) {
+                String word = guesses[guessIdx].getWord();
+                if(last == null || word.compareTo(last) > 0) last = word;
+            }
+            ret[i] = last;
         }
         return ret;
     }
 
+    /**
+     * Finds groups of answers in the pool that are the same except at one index (like
+     * the "_ight" family), along with the guess that best splits up each group
+     * @param answerPool the pool of possible answers
+     * @param minSize the fewest answers a group needs to be reported
+     * @return the clusters, from the most to the least expected guesses
+     */
+    public List<TrapCluster> getTrapClusters(AnswerPool answerPool, int minSize) {
+        List<Answer> poolAnswers = new ArrayList<>(answerPool.getAnswers());
+        int[] packedAnswers = new int[poolAnswers.size()];
+        for(int i = 0; i < packedAnswers.length; i++) packedAnswers[i] = poolAnswers.get(i).getPacked();
+        List<LongListMap> groups = groupByEachHole(packedAnswers);
+
+        List<TrapCluster> clusters = new ArrayList<>();
+        for(int hole = 0; hole < 5; hole++) {
+            LongListMap map = groups.get(hole);
+            for(int i = 0; i < map.numKeys(); i++) {
+                if(map.sizeAt(i) < minSize) continue;
+                List<Answer> members = new ArrayList<>(map.sizeAt(i));
+                for(int answerIdx : map.valuesAt(i)) members.add(poolAnswers.get(answerIdx));
+                clusters.add(new TrapCluster(hole, members));
+            }
+        }
+
+        clusters.parallelStream().forEach(cluster -> cluster.findBestSplitter(guesses));
+        Collections.sort(clusters);
+        return clusters;
+    }
+
     public List<Guess> predictBestOpeningWords(int numCandidates) {
-        return Stream.of(guesses)
-            .filter(guess -> !guess.containsDuplicates())
-            .sorted(Comparator.comparing(rootAnswerPool::getGuessScore).reversed())
-            .limit(numCandidates).toList();
+        if(guessScores == null) {
+            guessScores = SolverMetrics.timed("rank candidates",
+                    () -> Ranking.scores(NUM_GUESSES, i -> rootAnswerPool.getGuessScore(guesses[i])));
+        }
+        int[] top = Ranking.topK(guessScores, numCandidates, i -> !guesses[i].containsDuplicates());
+        return toGuessList(top);
+    }
+
+    /**
+     * Ranks the next guesses for a pool by the average number of answers they leave,
+     * trying only one guess from each class of guesses that split the pool the same way
+     * and skipping guesses that can't split it at all
+     * @param answerPool the pool of possible answers
+     * @param n the number of guesses to return
+     * @return the best guesses, best first, preferring guesses that could be the answer on ties
+     */
+    public List<Guess> rankNextGuesses(AnswerPool answerPool, int n) {
+        if(answerPool.size() == 1) {
+            return List.of(new Guess(answerPool.getAnswers().get(0).getWord()));
+        }
+        if(prefixCache != null && answerPool.size() > 2) {
+            List<Guess> cached = prefixCache.get(answerPool, n);
+            if(cached != null) return cached;
+        }
+        UsefulGuesses filtered = answerPool.filterUsefulGuesses(guesses);
+        SolverMetrics.add(SolverMetrics.Counter.GUESSES_SKIPPED, filtered.getNumSkipped());
+        Guess[] useful = filtered.toArray();
+        if((long) useful.length * answerPool.size() > MAX_CLASS_BYTES) {
+            return rankNextGuessesTiled(answerPool, useful, n);
+        }
+        GuessClasses classes = SolverMetrics.timed("guess classes", () -> answerPool.getGuessClasses(useful));
+        int[] scores = new int[classes.numClasses()];
+        for(int c = 0; c < scores.length; c++) {
+            scores[c] = -2 * classes.getSumOfSquares(c) + (classes.isAnswer(c) ? 1 : 0);
+        }
+        List<Guess> ret = new ArrayList<>(n);
+        for(int c : Ranking.topK(scores, n)) ret.add(classes.getRepresentative(c));
+        return ret;
+    }
+
+    /**
+     * Loads rankings precomputed with PrefixCache, which rankNextGuesses uses for the pools
+     * they cover before ranking live
+     */
+    public PrefixCache loadPrefixCache(String cacheFile) throws IOException {
+        prefixCache = PrefixCache.load(new File(cacheFile).toPath(), guesses);
+        return prefixCache;
+    }
+
+    public PrefixCache getPrefixCache() {
+        return prefixCache;
+    }
+
+    /**
+     * Loads a model calibrated with CostModel, which the tree solvers order their candidates by
+     */
+    public CostModel loadCostModel(String modelFile) throws IOException {
+        costModel = CostModel.load(new File(modelFile).toPath());
+        return costModel;
+    }
+
+    public CostModel getCostModel() {
+        return costModel;
+    }
+
+    /**
+     * Same as rankNextGuesses, but scores the 50 best guesses by the answers expected to be left
+     * after them and the best follow-up (see TwoPlyRanker) instead of just after them
+     * @param answerPool the pool of possible answers
+     * @param n the number of guesses to return
+     * @return the best guesses, best first
+     */
+    public List<TwoPlyRanker.Result> rankNextGuessesTwoPly(AnswerPool answerPool, int n) {
+        return new TwoPlyRanker(guesses, 50, 100).rank(answerPool, n);
+    }
+
+    // same as rankNextGuesses but without grouping the guesses into classes, which needs too much memory for big pools
+    private static List<Guess> rankNextGuessesTiled(AnswerPool answerPool, Guess[] guesses, int n) {
+        long[] sumsOfSquares = SolverMetrics.timed("tiled scoring", () -> answerPool.getGuessSumsOfSquares(guesses));
+        Set<Integer> poolWords = new HashSet<>();
+        for(Answer answer : answerPool.getAnswers()) poolWords.add(answer.getPacked());
+        long[] scores = new long[guesses.length];
+        for(int i = 0; i < guesses.length; i++) {
+            scores[i] = -2 * sumsOfSquares[i] + (poolWords.contains(guesses[i].getPacked()) ? 1 : 0);
+        }
+        List<Guess> ret = new ArrayList<>(n);
+        for(int i : Ranking.topK(scores, n, i -> true)) ret.add(guesses[i]);
+        return ret;
+    }
+
+    /**
+     * Ranks every guess in a word list as an opener against every answer in another, for lists of
+     * any size (like 100k+ word custom dictionaries) since the scores are computed in tiles
+     * @param guessesFile the guesses, one per line
+     * @param answersFile the answers, one per line
+     * @param n the number of openers to return
+     * @return the best openers, best first
+     */
+    public static List<OpenerResult> rankOpeners(String guessesFile, String answersFile, int n) throws IOException {
+        int[] packedGuesses = readPackedWords(guessesFile);
+        int[] packedAnswers = readPackedWords(answersFile);
+        long[] sumsOfSquares = new TiledScorer(packedGuesses, packedAnswers).sumsOfSquares();
+        long[] scores = new long[sumsOfSquares.length];
+        for(int i = 0; i < scores.length; i++) scores[i] = -sumsOfSquares[i];
+
+        List<OpenerResult> ret = new ArrayList<>(n);
+        for(int i : Ranking.topK(scores, n, i -> true)) {
+            Guess[] opening = {new Guess(Feedback.unpack(packedGuesses[i]))};
+            ret.add(new OpenerResult(opening, sumsOfSquares[i], packedAnswers.length));
+        }
+        return ret;
+    }
+
+    // reads the five letter words in a file, skipping any other lines
+    private static int[] readPackedWords(String file) throws IOException {
+        // read as UTF-8 since a line the default charset can't decode would end the scan early
+        try(Scanner scanner = new Scanner(new File(file), StandardCharsets.UTF_8)) {
+            int[] words = new int[1024];
+            int numWords = 0;
+            while(scanner.hasNextLine()) {
+                String word = scanner.nextLine().trim().toLowerCase();
+                if(!isFiveLetters(word)) continue;
+                if(numWords == words.length) words = Arrays.copyOf(words, 2 * numWords);
+                words[numWords++] = Feedback.pack(word);
+            }
+            return Arrays.copyOf(words, numWords);
+        }
+    }
+
+    // whether the word is exactly five letters from a to z, so it packs into valid letter codes
+    private static boolean isFiveLetters(String word) {
+        if(word.length() != 5) return false;
+        for(int i = 0; i < 5; i++) {
+            char c = word.charAt(i);
+            if(c < 'a' || c > 'z') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Starts a multi-board game (2 for Dordle, 4 for Quordle, 8 for Octordle) over every answer
+     */
+    public MultiBoard newMultiBoard(int numBoards) {
+        return new MultiBoard(Arrays.asList(answers), numBoards);
+    }
+
+    /**
+     * Finds the fewest guesses that are sure to win an adversarial (Absurdle style) game
+     * @param numCandidates the most guesses to try at each step, or 0 for every guess
+     * @param maxGuesses the most guesses to look for a win in
+     * @return the winning guesses, or null if there's no win in maxGuesses
+     */
+    public List<Guess> findShortestAdversarialWin(int numCandidates, int maxGuesses) {
+        return new AdversarialSolver(guesses, numCandidates).findShortestWin(rootAnswerPool, maxGuesses);
+    }
+
+    /**
+     * Screens every guess as an opener by sampling answers (see OpenerScreening) instead
+     * of trusting a letter frequency heuristic, then evaluates the survivors exactly
+     * @param numExact the number of openers to evaluate exactly, or more if more are still competitive
+     * @return the survivors' exact averages, best first
+     */
+    public List<OpenerScreening.Estimate> screenOpeners(int numExact) {
+        return SolverMetrics.timed("screen openers", () -> new OpenerScreening(guesses, answers, 0).screen(64, numExact, 3));
+    }
+
+    /**
+     * Same as predictBestOpeningWords, but ranks every guess by how well it actually splits
+     * the answers, as estimated by screenOpeners
+     */
+    public List<Guess> screenBestOpeningWords(int numCandidates) {
+        List<Guess> ret = new ArrayList<>(numCandidates);
+        for(OpenerScreening.Estimate estimate : screenOpeners(numCandidates)) {
+            if(ret.size() == numCandidates) break;
+            ret.add(estimate.getGuess());
+        }
+        return ret;
+    }
+
+    private List<Guess> toGuessList(int[] guessIndeces) {
+        List<Guess> ret = new ArrayList<>(guessIndeces.length);
+        for(int i : guessIndeces) ret.add(guesses[i]);
+        return Collections.unmodifiableList(ret);
+    }
+
+    /**
+     * Finds the openings of non-overlapping words that leave the fewest answers on average
+     * @param numWords the number of words in each opening
+     * @param numCandidates the number of words from predictBestOpeningWords to consider
+     * @param topN the number of openings to return
+     * @return the best openings, best first
+     */
+    public List<OpenerResult> predictBestOpenings(int numWords, int numCandidates, int topN) {
+        return newOpenerSearch(numWords, numCandidates, topN).search();
+    }
+
+    /**
+     * Prepares a search over openings made of the words from predictBestOpeningWords
+     */
+    public OpenerSearch newOpenerSearch(int numWords, int numCandidates, int topN) {
+        return new OpenerSearch(predictBestOpeningWords(numCandidates), answers, numWords, topN);
+    }
+
+    /**
+     * Same as predictBestOpenings, but stops when the time budget runs out and reports each
+     * new best opening as soon as it's found
+     * @param numWords the number of words in each opening
+     * @param numCandidates the number of words from predictBestOpeningWords to consider
+     * @param topN the number of openings to return
+     * @param budget the time budget, which includes ranking and preparing the candidates
+     * @param onImprovement called with each new best opening
+     * @return the best openings found in time, best first
+     */
+    public List<OpenerResult> predictBestOpeningsAnytime(int numWords, int numCandidates, int topN,
+            Duration budget, Consumer<OpenerResult> onImprovement) {
+        SearchControl control = SearchControl.withBudget(budget);
+        return newOpenerSearch(numWords, numCandidates, topN).search(control, onImprovement);
     }
 
     public void predictBestOpeningPair(int numCandidates) {
-        List<Guess> candidates = predictBestOpeningWords(numCandidates);
-        int max = 0;
-        Map<DetailedHint, Integer> seenHints = new HashMap<>();
-        for(int i = 0; i < numCandidates - 1; i++) {
-            Guess guess1 = candidates.get(i);
-            boolean[] usedChars = guess1.getVector();
-            for(int j = i + 1; j < numCandidates; j++) {
-                Guess guess2 = candidates.get(j);
-                if(guess2.overlapsWith(usedChars)) continue;
-                int elims = 0;
-                for(Answer answer : answers) {
-                    DetailedHint hint = new DetailedHint(guess1, answer);
-                    DetailedHint test = new DetailedHint();
-                    test.add(hint);
-                    if(!hint.equals(test)) {
-                        System.out.println(hint);
-                        System.out.println(test);
+        predictBestOpenings(2, numCandidates, 10).forEach(System.out::println);
+    }
+
+    public void predictBestOpeningTriple(int numCandidates) {
+        predictBestOpenings(3, numCandidates, 10).forEach(System.out::println);
+    }
+
+    /**
+     * Exhaustively checks that adding hints together is exact for randomly sampled
+     * guess pairs and triples: for every answer, the words compliant with the combined
+     * hint must be exactly the words compliant with each of the individual hints, and
+     * a word must be compliant with an individual hint exactly when it would be given
+     * the same pattern. Compiled hints (see CompiledHint) must agree with the hints
+     * they were compiled from.
+     * @param numSamples the number of guess pairs and the number of guess triples to check
+     * @param seed the random seed
+     * @return the number of mismatches found, which should be zero
+     */
+    public int verifyHintAddition(int numSamples, long seed) {
+        Random random = new Random(seed);
+        int mismatches = 0;
+        for(int sample = 0; sample < 2 * numSamples; sample++) {
+            // half of the samples are pairs and half are triples, favoring
+            // guesses with duplicate letters since those are the hard cases
+            Guess[] sampleGuesses = new Guess[sample < numSamples ? 2 : 3];
+            for(int i = 0; i < sampleGuesses.length; i++) {
+                Guess guess;
+                do {
+                    guess = guesses[random.nextInt(NUM_GUESSES)];
+                } while(!guess.containsDuplicates() && random.nextBoolean());
+                sampleGuesses[i] = guess;
+            }
+
+            for(Answer answer : answers) {
+                DetailedHint[] hints = new DetailedHint[sampleGuesses.length];
+                int[] patterns = new int[sampleGuesses.length];
+                DetailedHint combined = new DetailedHint();
+                for(int i = 0; i < sampleGuesses.length; i++) {
+                    patterns[i] = Feedback.compute(sampleGuesses[i], answer);
+                    hints[i] = new DetailedHint(sampleGuesses[i], patterns[i]);
+                    combined.add(hints[i]);
+                }
+                CompiledHint compiled = combined.compile();
+
+                for(Answer word : answers) {
+                    boolean inIntersection = true;
+                    for(int i = 0; i < sampleGuesses.length; i++) {
+                        boolean compliant = hints[i].wordIsCompliant(word);
+                        if(compliant != (Feedback.compute(sampleGuesses[i], word) == patterns[i])) {
+                            mismatches++;
+                        }
+                        inIntersection &= compliant;
                     }
-                    hint.add(new DetailedHint(guess2, answer));
-                    if(!seenHints.containsKey(hint)) {
-                        seenHints.put(hint, hint.getNumElims(rootAnswerPool));
+                    boolean combinedCompliant = combined.wordIsCompliant(word);
+                    if(combinedCompliant != inIntersection || compiled.wordIsCompliant(word) != combinedCompliant) {
+                        mismatches++;
+                        System.out.printf("Mismatch for %s with answer %s and word %s%n",
+                                Arrays.toString(sampleGuesses), answer, word);
                     }
-                    elims += seenHints.get(hint);
-                }
-                double avg = NUM_ANSWERS - ((double) elims / NUM_ANSWERS);
-                System.out.print(String.format(
-                    "\rThe opening (%s, %s) leaves an average of %,.2f words (%d eliminations)",
-                    guess1, guess2, avg, elims));
-                
-                if(elims > max) {
-                    System.out.println();
-                    max = elims;
                 }
             }
         }
+        return mismatches;
     }
 
-    public void predictBestOpeningTriple(int numCandidates) {
+    /**
+     * Finds the opening of non-overlapping words that minimizes the worst case, i.e. the
+     * largest group of answers that all get the same hints. Each opening stops being
+     * evaluated as soon as one of its groups grows past the largest group of the best
+     * opening so far, which skips most of the work for most openings.
+     * @param numWords the number of words in the opening, from 1 to 3
+     * @param numCandidates the number of words from predictBestOpeningWords to consider
+     * @return the best opening
+     */
+    public Guess[] predictMinimaxOpening(int numWords, int numCandidates) {
+        if(numWords < 1 || numWords > 3) {
+            throw new IllegalArgumentException("An opening must have between 1 and 3 words");
+        }
         List<Guess> candidates = predictBestOpeningWords(numCandidates);
-        int max = 0;
-        Map<DetailedHint, Integer> seenHints = new HashMap<>();
-        for(int i = 0; i < numCandidates - 2; i++) {
-            Guess guess1 = candidates.get(i);
-            boolean[] usedChars = guess1.getVector();
-            for(int j = i + 1; j < numCandidates - 1; j++) {
-                Guess guess2 = candidates.get(j);
-                if(guess2.overlapsWith(usedChars)) continue;
-                for(char c : guess2.getWord().toCharArray()) {
-                    usedChars[c - 'a'] = true;
-                }
-                for(int k = j + 1; k < numCandidates; k++) {
-                    Guess guess3 = candidates.get(k);
-                    if(guess3.overlapsWith(usedChars)) continue;
-                    int elims = 0;
-                    for(Answer answer : answers) {
-                        DetailedHint hint = new DetailedHint(guess1, answer);
-                        hint.add(new DetailedHint(guess2, answer));
-                        hint.add(new DetailedHint(guess3, answer));
-                        if(!seenHints.containsKey(hint)) {
-                            seenHints.put(hint, hint.getNumElims(rootAnswerPool));
-                        }
-                        elims += seenHints.get(hint);
-                    }
-                    double avg = NUM_ANSWERS - ((double) elims / NUM_ANSWERS);
-                    System.out.print(String.format(
-                        "\rThe opening (%s, %s, %s) leaves an average of %,.2f words (%d eliminations)",
-                        guess1, guess2, guess3, avg, elims));
-                    
-                    if(elims > max) {
-                        System.out.println();
-                        max = elims;
+
+        // patterns[i][j] = the pattern the i-th candidate gets for the j-th answer
+        byte[][] patterns = new byte[candidates.size()][NUM_ANSWERS];
+        for(int i = 0; i < candidates.size(); i++) {
+            for(int j = 0; j < NUM_ANSWERS; j++) {
+                patterns[i][j] = (byte) Feedback.compute(candidates.get(i), answers[j]);
+            }
+        }
+        SolverMetrics.add(SolverMetrics.Counter.HINTS_COMPUTED, (long) candidates.size() * NUM_ANSWERS);
+
+        MinimaxSearch search = new MinimaxSearch(candidates, patterns, numWords);
+        search.search(new int[NUM_ANSWERS], 0, 0, 0);
+        System.out.println();
+        return search.bestOpening;
+    }
+
+    private static class MinimaxSearch {
+        private final List<Guess> candidates;
+        private final byte[][] patterns;
+        private final int[] chosen;
+        private final IntCounter counter = new IntCounter(NUM_ANSWERS);
+
+        private Guess[] bestOpening;
+        private int bestLargestBucket = Integer.MAX_VALUE;
+        private int bestNumBuckets = 0;
+
+        private MinimaxSearch(List<Guess> candidates, byte[][] patterns, int numWords) {
+            this.candidates = candidates;
+            this.patterns = patterns;
+            this.chosen = new int[numWords];
+        }
+
+        /**
+         * Tries every way to finish the opening from the given depth
+         * @param prefixKeys the combined pattern of the words chosen so far for each answer
+         * @param depth the number of words chosen so far
+         * @param start the first candidate that can be chosen next
+         * @param usedLetters bitmask of the letters in the words chosen so far
+         */
+        private void search(int[] prefixKeys, int depth, int start, int usedLetters) {
+            for(int i = start; i < candidates.size(); i++) {
+                int letters = letterMask(candidates.get(i));
+                if((letters & usedLetters) != 0) continue;
+                chosen[depth] = i;
+                if(depth == chosen.length - 1) {
+                    evaluate(prefixKeys, patterns[i]);
+                } else {
+                    int[] keys = new int[NUM_ANSWERS];
+                    for(int j = 0; j < NUM_ANSWERS; j++) {
+                        keys[j] = prefixKeys[j] * Feedback.NUM_PATTERNS + (patterns[i][j] & 0xFF);
                     }
+                    search(keys, depth + 1, i + 1, usedLetters | letters);
                 }
-                // reset usedChars vector to only characters from guess1 so it
-                // can be reused to find the next non-overlapping second guess
-                usedChars = guess1.getVector();
             }
         }
+
+        private void evaluate(int[] prefixKeys, byte[] lastPatterns) {
+            counter.clear();
+            int largest = 0;
+            for(int j = 0; j < NUM_ANSWERS; j++) {
+                int count = counter.increment(prefixKeys[j] * Feedback.NUM_PATTERNS + (lastPatterns[j] & 0xFF));
+                if(count > largest) {
+                    largest = count;
+                    if(largest > bestLargestBucket) return;
+                }
+            }
+
+            // break ties by the number of groups, since more groups means smaller groups on average
+            if(largest < bestLargestBucket || counter.size() > bestNumBuckets) {
+                bestLargestBucket = largest;
+                bestNumBuckets = counter.size();
+                bestOpening = new Guess[chosen.length];
+                for(int i = 0; i < chosen.length; i++) bestOpening[i] = candidates.get(chosen[i]);
+                System.out.print(String.format(
+                    "%nThe opening %s leaves at most %d words (%d groups)",
+                    Arrays.toString(bestOpening), largest, counter.size()));
+            }
+        }
+    }
+
+    // bitmask of the letters in a word
+    private static int letterMask(WordleWord word) {
+        int mask = 0;
+        for(int i = 0; i < 5; i++) mask |= 1 << (word.charAt(i) - 'a');
+        return mask;
+    }
+
+    /**
+     * Prints the expected number of guesses to solve every answer when starting with each opener,
+     * remembering solved pools in the given file so later runs (even with other openers) can reuse them.
+     * Candidates are ordered by the cost model loaded with loadCostModel, if there is one.
+     * @param numCandidates the number of guesses (besides the pool's answers) tried for each pool
+     */
+    public void printExpectedGuesses(String storeFile, int numCandidates, String... openers) throws IOException {
+        try(SolutionStore store = new SolutionStore(new File(storeFile).toPath())) {
+            TreeSolver solver = new TreeSolver(guesses, numCandidates, store, costModel);
+            for(String opener : openers) {
+                double cost = solver.solveWithOpener(rootAnswerPool, new Guess(opener));
+                System.out.println(String.format("%s: %,.4f guesses on average", opener, cost));
+            }
+            System.out.println(String.format("%,d solved pools stored (%,d hits, %,d misses)",
+                store.size(), store.getHits(), store.getMisses()));
+        }
+    }
+
+    /**
+     * Solves the game starting with the opener and writes the strategy tree to a file
+     * (see StrategyTree), ordering candidates by the loaded cost model like printExpectedGuesses
+     */
+    public StrategyTree writeStrategyTree(String storeFile, String treeFile, int numCandidates, String opener) throws IOException {
+        try(SolutionStore store = new SolutionStore(new File(storeFile).toPath())) {
+            TreeSolver solver = new TreeSolver(guesses, numCandidates, store, costModel);
+            StrategyTree tree = StrategyTree.build(solver, rootAnswerPool, new Guess(opener));
+            tree.write(new File(treeFile).toPath());
+            System.out.println(String.format("%s: %,d nodes, %,.4f guesses on average",
+                opener, tree.size(), tree.getCost(StrategyTree.ROOT)));
+            return tree;
+        }
     }
 
     public void printOpenerInfo(String... openingWords) {
@@ -336,6 +727,7 @@ public class WordleCalculator {
         WordleCalculator calc = new WordleCalculator();
 
         calc.predictBestOpeningTriple(8000);
+        if(SolverMetrics.ENABLED) System.out.print(SolverMetrics.report());
         
     }
 }
@@ -9,6 +9,10 @@ public class WordleWord {
     protected String word;
     private boolean containsDuplicates;
     private Map<Character, Integer> charFreqs;
+    // the word packed into an int (see Feedback.pack)
+    private int packed;
+    // letterCounts[i] = occurences of the i-th letter of the alphabet
+    private byte[] letterCounts;
 
     public WordleWord(String word) {
         if(word.length() != 5) {
@@ -26,6 +30,12 @@ public class WordleWord {
                 containsDuplicates = true;
             }
         }
+
+        packed = Feedback.pack(word);
+        letterCounts = new byte[26];
+        for(int i = 0; i < 5; i++) {
+            letterCounts[word.charAt(i) - 'a']++;
+        }
     }
 
     public char charAt(int index) {
@@ -49,6 +59,17 @@ public class WordleWord {
         return charFreqs.getOrDefault(c, 0);
     }
 
+    /**
+     * Same as charFreq, but indexed by letter (0 for 'a' to 25 for 'z')
+     */
+    public int letterCount(int letter) {
+        return letterCounts[letter];
+    }
+
+    public int getPacked() {
+        return packed;
+    }
+
     public Map<Character, Integer> getCharFreqs() {
         return charFreqs;
     }